@@ -0,0 +1,85 @@
+package Benchmarks;
+
+import LogicEngine.GameLogic;
+import SystemElements.Board;
+import SystemElements.Fruit;
+import SystemElements.Ghost;
+import SystemElements.Pacman;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * custo das operacoes de tick da GameLogic (movimento dos fantasmas e do
+ * jogador), da montagem do estagio e dos forks, com diferentes quantidades
+ * de fantasmas
+ * @author matheus
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameLogicBenchmark {
+    private static final String[] GHOST_NAMES = {"Blinky", "Pinky", "Inky", "Clyde"};
+
+    @Param({"4", "16", "64"})
+    public int ghosts;
+
+    private GameLogic _logic;
+    private Pacman _player;
+    private boolean _forward;
+
+    @Setup(Level.Iteration)
+    public void setup(){
+        _player = new Pacman();
+        _logic = new GameLogic(new Board(), _player, 42);
+        for (int i = 0; i < ghosts; i++){
+            _logic.addEnemy(new Ghost(GHOST_NAMES[i % GHOST_NAMES.length], i % 2 == 0));
+        }
+        _logic.setLevelFruit(new Fruit(100));
+        _logic.restartPositions();
+    }
+
+    @Benchmark
+    public void updateEnemiesPositions(){
+        _logic.updateEnemiesPositions();
+    }
+
+    @Benchmark
+    public boolean tryMovePlayer(){
+        _forward = !_forward;
+        return _logic.tryMovePlayer(_player.getPosX(), _player.getPosY() + (_forward ? 1 : -1));
+    }
+
+    @Benchmark
+    public char[][] getCurrentStage(){
+        return _logic.getCurrentStage();
+    }
+
+    @Benchmark
+    public GameLogic fork(){
+        return _logic.fork();
+    }
+
+    @Benchmark
+    public GameLogic forkAndMove(){
+        GameLogic fork = _logic.fork();
+        fork.updateEnemiesPositions();
+        fork.tryMovePlayer(_player.getPosX(), _player.getPosY() + 1);
+        return fork;
+    }
+}
@@ -0,0 +1,61 @@
+package Benchmarks;
+
+import LogicEngine.GameLogic;
+import LogicEngine.GameSession;
+import LogicEngine.InputSource;
+import LogicEngine.MazeGenerator;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * custo de uma movimentacao dos fantasmas em labirintos gerados grandes, sem
+ * tabela de navegacao, com centenas de fantasmas, com e sem o calculo
+ * paralelo das intencoes; inclui o orcamento da busca de caminho
+ * compartilhada
+ * @author matheus
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HordeBenchmark {
+    @Param({"201", "1001"})
+    public int size;
+
+    @Param({"100", "500"})
+    public int ghosts;
+
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    private GameLogic _logic;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        GameSession session = GameSession.hordeGame(
+                Collections.singletonList(MazeGenerator.generate(size, size, 42)), ghosts, 42, InputSource.NONE);
+        _logic = session.getLogic();
+        _logic.setParallelGhosts(parallel ? 1 : Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public void updateEnemiesPositions(){
+        _logic.updateEnemiesPositions();
+    }
+}
@@ -0,0 +1,146 @@
+package Benchmarks;
+
+import SystemElements.Board;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+
+/**
+ * labirintos usados pelos benchmarks: o tabuleiro real do jogo e labirintos
+ * sinteticos maiores, gerados de forma deterministica
+ * @author matheus
+ */
+final class Mazes {
+
+    private Mazes(){
+    }
+
+    /**
+     * mapa de posicoes validas de um labirinto pelo nome
+     * @param name "board" para o tabuleiro do jogo ou "maze-N" para um
+     * labirinto sintetico N x N
+     * @return mapa de posicoes validas
+     */
+    static boolean[][] byName(String name){
+        if (name.equals("board")){
+            return board();
+        }
+        return synthetic(Integer.parseInt(name.substring("maze-".length())), 42);
+    }
+
+    /**
+     * mapa de posicoes validas do tabuleiro do jogo
+     * @return mapa de posicoes validas
+     */
+    static boolean[][] board(){
+        Board board = new Board();
+        boolean[][] valid = new boolean[board.getHeight()][board.getWidth()];
+        for (int i = 0; i < board.getHeight(); i++){
+            for (int j = 0; j < board.getWidth(); j++){
+                valid[i][j] = !board.getInvalidSpaceSymbols().contains(board.getElementAt(i, j));
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * labirinto perfeito gerado por busca em profundidade, com algumas
+     * paredes removidas para criar ciclos como no tabuleiro do jogo
+     * @param size lado do labirinto (impar)
+     * @param seed semente da geracao
+     * @return mapa de posicoes validas
+     */
+    static boolean[][] synthetic(int size, long seed){
+        boolean[][] valid = new boolean[size][size];
+        Random random = new Random(seed);
+        Deque<int[]> stack = new ArrayDeque<>();
+        int[] order = {0, 1, 2, 3};
+
+        valid[1][1] = true;
+        stack.push(new int[]{1, 1});
+        while (!stack.isEmpty()){
+            int[] cell = stack.peek();
+            shuffle(order, random);
+
+            boolean carved = false;
+            for (int direction : order){
+                int nx = cell[0] + 2 * dx(direction);
+                int ny = cell[1] + 2 * dy(direction);
+                if (nx > 0 && ny > 0 && nx < size - 1 && ny < size - 1 && !valid[nx][ny]){
+                    valid[cell[0] + dx(direction)][cell[1] + dy(direction)] = true;
+                    valid[nx][ny] = true;
+                    stack.push(new int[]{nx, ny});
+                    carved = true;
+                    break;
+                }
+            }
+            if (!carved){
+                stack.pop();
+            }
+        }
+
+        for (int i = 1; i < size - 1; i++){
+            for (int j = 1; j < size - 1; j++){
+                if (!valid[i][j] && random.nextInt(10) == 0){
+                    valid[i][j] = true;
+                }
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * acha uma casa a exatamente a distancia pedida da origem
+     * @param valid mapa de posicoes validas
+     * @param fromX linha de origem
+     * @param fromY coluna de origem
+     * @param distance distancia em passos
+     * @return {linha, coluna} da casa encontrada
+     */
+    static int[] cellAtDistance(boolean[][] valid, int fromX, int fromY, int distance){
+        int height = valid.length;
+        int width = valid[0].length;
+        int[] dist = new int[height * width];
+        Arrays.fill(dist, -1);
+        int[] queue = new int[height * width];
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = fromX * width + fromY;
+        dist[fromX * width + fromY] = 0;
+        while (head < tail){
+            int cell = queue[head++];
+            if (dist[cell] == distance){
+                return new int[]{cell / width, cell % width};
+            }
+            for (int direction = 0; direction < 4; direction++){
+                int nx = cell / width + dx(direction);
+                int ny = cell % width + dy(direction);
+                if (nx >= 0 && ny >= 0 && nx < height && ny < width && valid[nx][ny] && dist[nx * width + ny] < 0){
+                    dist[nx * width + ny] = dist[cell] + 1;
+                    queue[tail++] = nx * width + ny;
+                }
+            }
+        }
+        throw new IllegalArgumentException("no cell at distance " + distance);
+    }
+
+    private static int dx(int direction){
+        return direction == 0 ? -1 : direction == 1 ? 1 : 0;
+    }
+
+    private static int dy(int direction){
+        return direction == 2 ? -1 : direction == 3 ? 1 : 0;
+    }
+
+    private static void shuffle(int[] values, Random random){
+        for (int i = values.length - 1; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package Benchmarks;
+
+import MyUtils.Pathfind;
+import MyUtils.Position;
+
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * custo de Pathfind.findPath no tabuleiro do jogo e em labirintos maiores,
+ * para pares de casas a uma distancia fixa
+ * @author matheus
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathfindBenchmark {
+
+    @Param({"board", "maze-65", "maze-129"})
+    public String maze;
+
+    /**
+     * o A* atual cresce muito rapido com a distancia (as posicoes sao
+     * comparadas por identidade nos mapas), por isso as distancias sao curtas
+     */
+    @Param({"4", "8", "12"})
+    public int distance;
+
+    private boolean[][] _valid;
+    private Position _start;
+    private Position _goal;
+
+    @Setup
+    public void setup(){
+        _valid = Mazes.byName(maze);
+        int[] goal = Mazes.cellAtDistance(_valid, 1, 1, distance);
+        _start = new Position(1, 1);
+        _goal = new Position(goal[0], goal[1]);
+    }
+
+    @Benchmark
+    public Stack<Position> findPath(){
+        return Pathfind.findPath(_valid, _start, _goal);
+    }
+}
@@ -0,0 +1,72 @@
+package Benchmarks;
+
+import LogicEngine.Direction;
+import LogicEngine.VectorEnvironment;
+
+import java.util.Collections;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * custo de um step de todos os ambientes no tabuleiro padrao com acoes
+ * aleatorias, incluindo os reinicios e a escrita das observacoes; dividir o
+ * tempo pelo numero de ambientes da o custo de um passo de um ambiente
+ * @author matheus
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorEnvironmentBenchmark {
+    private static final int ACTION_SETS = 64;
+
+    @Param({"64", "1024"})
+    public int environments;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private VectorEnvironment _environment;
+    private int[][] _actions;
+    private int _next;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        _environment = new VectorEnvironment(Collections.singletonList(LogicEngine.Level.standard()), 4,
+                                             environments, threads, 42);
+        SplittableRandom random = new SplittableRandom(42);
+        _actions = new int[ACTION_SETS][environments];
+        for (int[] actions : _actions){
+            for (int i = 0; i < environments; i++){
+                actions[i] = random.nextInt(Direction.COUNT);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        _environment.shutdown();
+    }
+
+    @Benchmark
+    public float[] step(){
+        _environment.step(_actions[_next++ & (ACTION_SETS - 1)]);
+        return _environment.getRewards();
+    }
+}
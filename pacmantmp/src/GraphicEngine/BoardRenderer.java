@@ -0,0 +1,445 @@
+package GraphicEngine;
+
+import LogicEngine.GameSnapshot;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * desenha o jogo a partir dos retratos publicados pela simulacao, de forma
+ * incremental: as paredes sao pre-renderizadas uma vez por level, as casas
+ * so sao redesenhadas quando o retrato traz casas diferentes das desenhadas
+ * e as entidades sao desenhadas a cada quadro em posicoes interpoladas entre
+ * os ticks, apagando antes o que foi desenhado por cima no quadro anterior.
+ * Levels maiores que a area visivel sao desenhados por uma camera que segue
+ * o jogador: a cada quadro so as casas visiveis sao desenhadas, com as
+ * paredes pre-renderizadas em ladrilhos de WALL_TILE_CELLS casas de lado
+ * guardados enquanto forem usados, e so as entidades visiveis
+ * @author matheus
+ */
+public class BoardRenderer {
+    private static final char WALL = '■';
+
+    /**
+     * lado em casas dos ladrilhos de paredes da camera
+     */
+    private static final int WALL_TILE_CELLS = 16;
+
+    /**
+     * ladrilhos de paredes guardados, alem disso os usados ha mais tempo sao
+     * descartados
+     */
+    private static final int MAX_WALL_TILES = 32;
+
+    private final ImageStorage _imageStorage;
+    private final int _blockSize;
+    private final int _viewRows;
+    private final int _viewColumns;
+
+    private GameSnapshot _drawn;
+
+    private WritableImage _wallLayer;
+    private final Map<Integer, WritableImage> _wallTiles =
+            new LinkedHashMap<Integer, WritableImage>(MAX_WALL_TILES, 0.75f, true){
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, WritableImage> eldest){
+                    return size() > MAX_WALL_TILES;
+                }
+            };
+    private int _height;
+    private int _width;
+    private boolean _scrolling;
+
+    private int[] _spriteX = new int[8];
+    private int[] _spriteY = new int[8];
+    private int _spriteCount;
+
+    private int _lastScore = -1;
+    private int _lastLives = -1;
+
+    private boolean _invalid = true;
+
+    /**
+     * Construtor
+     * @param imageStorage imagens utilizadas nos desenhos
+     * @param blockSize tamanho em pixels de cada casa
+     */
+    public BoardRenderer(ImageStorage imageStorage, int blockSize){
+        this(imageStorage, blockSize, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Construtor para uma area visivel limitada, levels maiores que ela sao
+     * desenhados pela camera
+     * @param imageStorage imagens utilizadas nos desenhos
+     * @param blockSize tamanho em pixels de cada casa
+     * @param viewColumns colunas visiveis
+     * @param viewRows linhas visiveis, sem contar a linha de status
+     */
+    public BoardRenderer(ImageStorage imageStorage, int blockSize, int viewColumns, int viewRows){
+        _imageStorage = imageStorage;
+        _blockSize = blockSize;
+        _viewColumns = viewColumns;
+        _viewRows = viewRows;
+    }
+
+    /**
+     * descarta o que foi desenhado, forcando que o proximo quadro redesenhe
+     * tudo e que a camada de paredes seja refeita (troca de jogo ou de canvas)
+     */
+    public void invalidate(){
+        _invalid = true;
+        _wallLayer = null;
+        _wallTiles.clear();
+    }
+
+    /**
+     * desenha um retrato do jogo, redesenhando apenas o que mudou
+     * @param gc graphic context do canvas em que o desenho será feito
+     * @param snapshot ultimo retrato publicado pela simulacao
+     * @param nowNanos momento do quadro em System.nanoTime, usado para
+     * interpolar as entidades
+     */
+    public void draw(GraphicsContext gc, GameSnapshot snapshot, long nowNanos){
+        if (_invalid || snapshot.getCurrentLevel() != _drawn.getCurrentLevel()
+                || snapshot.getFruitReward() != _drawn.getFruitReward()){
+            if (!_invalid){
+                _wallLayer = null;
+                _wallTiles.clear();
+            }
+            _height = snapshot.getHeight();
+            _width = snapshot.getWidth();
+            _scrolling = _height > _viewRows || _width > _viewColumns;
+            if (!_scrolling){
+                redrawAll(gc, snapshot);
+            }
+            _invalid = false;
+        } else if (!_scrolling){
+            eraseSprites(gc, snapshot);
+            if (!snapshot.sameCells(_drawn)){
+                redrawChangedCells(gc, snapshot);
+            }
+        }
+        _drawn = snapshot;
+
+        if (_scrolling){
+            drawView(gc, snapshot, nowNanos);
+            return;
+        }
+        drawEntities(gc, snapshot, nowNanos);
+        drawStatus(gc, snapshot.getScore(), snapshot.getLives(), _width, _height);
+    }
+
+    /**
+     * redesenha o tabuleiro inteiro, refazendo a camada de paredes se preciso
+     */
+    private void redrawAll(GraphicsContext gc, GameSnapshot snapshot){
+        if (_wallLayer == null){
+            _wallLayer = renderWalls(snapshot, 0, 0, _height, _width);
+        }
+
+        gc.clearRect(0, 0, _width * _blockSize, (_height + 1) * _blockSize);
+        gc.drawImage(_wallLayer, 0, 0);
+
+        for (int i = 0; i < _height; i++){
+            for (int j = 0; j < _width; j++){
+                char elementAt = snapshot.cellAt(i, j);
+                if (elementAt != WALL){
+                    drawCell(gc, elementAt, i, j, snapshot);
+                }
+            }
+        }
+
+        _spriteCount = 0;
+        _lastScore = -1;
+        _lastLives = -1;
+    }
+
+    /**
+     * redesenha as casas cujo simbolo mudou desde o ultimo retrato desenhado,
+     * pulando os blocos de casas compartilhados pelos dois retratos
+     */
+    private void redrawChangedCells(GraphicsContext gc, GameSnapshot snapshot){
+        for (int chunkRow = 0; chunkRow < snapshot.chunkRows(); chunkRow++){
+            for (int chunkColumn = 0; chunkColumn < snapshot.chunkColumns(); chunkColumn++){
+                if (snapshot.sameChunk(_drawn, chunkRow, chunkColumn)){
+                    continue;
+                }
+                int lastRow = Math.min(_height, (chunkRow + 1) * GameSnapshot.CHUNK_SIZE);
+                int lastColumn = Math.min(_width, (chunkColumn + 1) * GameSnapshot.CHUNK_SIZE);
+                for (int i = chunkRow * GameSnapshot.CHUNK_SIZE; i < lastRow; i++){
+                    for (int j = chunkColumn * GameSnapshot.CHUNK_SIZE; j < lastColumn; j++){
+                        if (snapshot.cellAt(i, j) != _drawn.cellAt(i, j)){
+                            restoreCell(gc, snapshot, i, j);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * desenha a area visivel de um level maior que ela, com a camera
+     * centrada no jogador e presa aos limites do tabuleiro; como tudo muda
+     * quando a camera anda, a area e redesenhada inteira a cada quadro
+     */
+    private void drawView(GraphicsContext gc, GameSnapshot snapshot, long nowNanos){
+        int viewColumns = Math.min(_viewColumns, _width);
+        int viewRows = Math.min(_viewRows, _height);
+        int viewWidth = viewColumns * _blockSize;
+        int viewHeight = viewRows * _blockSize;
+
+        int left = camera(snapshot.renderY(0, nowNanos), viewWidth, _width * _blockSize);
+        int top = camera(snapshot.renderX(0, nowNanos), viewHeight, _height * _blockSize);
+
+        gc.clearRect(0, 0, viewWidth, viewHeight);
+        gc.save();
+        gc.translate(-left, -top);
+
+        drawWallTiles(gc, snapshot, left, top, viewWidth, viewHeight);
+
+        int firstRow = top / _blockSize;
+        int lastRow = Math.min(_height - 1, (top + viewHeight - 1) / _blockSize);
+        int firstColumn = left / _blockSize;
+        int lastColumn = Math.min(_width - 1, (left + viewWidth - 1) / _blockSize);
+        for (int i = firstRow; i <= lastRow; i++){
+            for (int j = firstColumn; j <= lastColumn; j++){
+                char elementAt = snapshot.cellAt(i, j);
+                if (elementAt != WALL){
+                    drawCell(gc, elementAt, i, j, snapshot);
+                }
+            }
+        }
+
+        for (int k = snapshot.entityCount() - 1; k >= 0; k--){
+            int x = (int) Math.round(snapshot.renderY(k, nowNanos) * _blockSize);
+            int y = (int) Math.round(snapshot.renderX(k, nowNanos) * _blockSize);
+            if (x <= left - _blockSize || x >= left + viewWidth || y <= top - _blockSize || y >= top + viewHeight){
+                continue;
+            }
+            Sprite sprite = spriteOf(snapshot.entitySymbol(k), snapshot);
+            if (sprite != null){
+                _imageStorage.draw(gc, sprite, x, y);
+            }
+        }
+        gc.restore();
+
+        _lastScore = -1;
+        drawStatus(gc, snapshot.getScore(), snapshot.getLives(), viewColumns, viewRows);
+    }
+
+    /**
+     * posicao da camera em um eixo, em pixels
+     * @param player posicao interpolada do jogador no eixo, em casas
+     * @param view tamanho da area visivel no eixo
+     * @param board tamanho do tabuleiro no eixo
+     * @return deslocamento da area visivel
+     */
+    private int camera(double player, int view, int board){
+        int center = (int) Math.round(player * _blockSize) + _blockSize / 2;
+        return Math.max(0, Math.min(board - view, center - view / 2));
+    }
+
+    /**
+     * desenha os ladrilhos de paredes que cobrem a area visivel
+     */
+    private void drawWallTiles(GraphicsContext gc, GameSnapshot snapshot, int left, int top, int viewWidth, int viewHeight){
+        int tilePixels = WALL_TILE_CELLS * _blockSize;
+        int tileRows = (_height + WALL_TILE_CELLS - 1) / WALL_TILE_CELLS;
+        int tileColumns = (_width + WALL_TILE_CELLS - 1) / WALL_TILE_CELLS;
+        int lastTileRow = Math.min(tileRows - 1, (top + viewHeight - 1) / tilePixels);
+        int lastTileColumn = Math.min(tileColumns - 1, (left + viewWidth - 1) / tilePixels);
+        for (int tileRow = top / tilePixels; tileRow <= lastTileRow; tileRow++){
+            for (int tileColumn = left / tilePixels; tileColumn <= lastTileColumn; tileColumn++){
+                int key = tileRow * tileColumns + tileColumn;
+                WritableImage tile = _wallTiles.get(key);
+                if (tile == null){
+                    tile = renderWalls(snapshot, tileRow * WALL_TILE_CELLS, tileColumn * WALL_TILE_CELLS,
+                                       WALL_TILE_CELLS, WALL_TILE_CELLS);
+                    _wallTiles.put(key, tile);
+                }
+                gc.drawImage(tile, tileColumn * tilePixels, tileRow * tilePixels);
+            }
+        }
+    }
+
+    /**
+     * apaga as entidades desenhadas no quadro anterior, redesenhando as casas
+     * que elas cobriam
+     */
+    private void eraseSprites(GraphicsContext gc, GameSnapshot snapshot){
+        for (int k = 0; k < _spriteCount; k++){
+            int firstRow = Math.max(0, Math.floorDiv(_spriteY[k], _blockSize));
+            int lastRow = Math.min(_height - 1, Math.floorDiv(_spriteY[k] + _blockSize - 1, _blockSize));
+            int firstColumn = Math.max(0, Math.floorDiv(_spriteX[k], _blockSize));
+            int lastColumn = Math.min(_width - 1, Math.floorDiv(_spriteX[k] + _blockSize - 1, _blockSize));
+            for (int i = firstRow; i <= lastRow; i++){
+                for (int j = firstColumn; j <= lastColumn; j++){
+                    restoreCell(gc, snapshot, i, j);
+                }
+            }
+        }
+        _spriteCount = 0;
+    }
+
+    /**
+     * limpa uma casa e desenha seu conteudo sem entidades
+     */
+    private void restoreCell(GraphicsContext gc, GameSnapshot snapshot, int i, int j){
+        gc.clearRect(j * _blockSize, i * _blockSize, _blockSize, _blockSize);
+        drawCell(gc, snapshot.cellAt(i, j), i, j, snapshot);
+    }
+
+    /**
+     * desenha o jogador e os inimigos nas posicoes interpoladas, o jogador
+     * por ultimo para ficar por cima
+     */
+    private void drawEntities(GraphicsContext gc, GameSnapshot snapshot, long nowNanos){
+        for (int k = snapshot.entityCount() - 1; k >= 0; k--){
+            Sprite sprite = spriteOf(snapshot.entitySymbol(k), snapshot);
+            if (sprite == null){
+                continue;
+            }
+            int x = (int) Math.round(snapshot.renderY(k, nowNanos) * _blockSize);
+            int y = (int) Math.round(snapshot.renderX(k, nowNanos) * _blockSize);
+            _imageStorage.draw(gc, sprite, x, y);
+            rememberSprite(x, y);
+        }
+    }
+
+    /**
+     * guarda onde uma entidade foi desenhada, para apaga-la no proximo quadro
+     */
+    private void rememberSprite(int x, int y){
+        if (_spriteCount == _spriteX.length){
+            _spriteX = Arrays.copyOf(_spriteX, _spriteCount * 2);
+            _spriteY = Arrays.copyOf(_spriteY, _spriteCount * 2);
+        }
+        _spriteX[_spriteCount] = x;
+        _spriteY[_spriteCount] = y;
+        _spriteCount++;
+    }
+
+    /**
+     * pre-renderiza as paredes de um retangulo do level em uma imagem fora da
+     * tela, o retangulo e cortado nos limites do tabuleiro
+     * @return imagem com as paredes, com a casa (firstRow, firstColumn) no
+     * canto superior esquerdo
+     */
+    private WritableImage renderWalls(GameSnapshot snapshot, int firstRow, int firstColumn, int rows, int columns){
+        rows = Math.min(rows, _height - firstRow);
+        columns = Math.min(columns, _width - firstColumn);
+        Canvas layerCanvas = new Canvas(columns * _blockSize, rows * _blockSize);
+        GraphicsContext layer = layerCanvas.getGraphicsContext2D();
+
+        for (int i = 0; i < rows; i++){
+            for (int j = 0; j < columns; j++){
+                if (snapshot.cellAt(firstRow + i, firstColumn + j) == WALL){
+                    _imageStorage.draw(layer, Sprite.WALL, j * _blockSize, i * _blockSize);
+                }
+            }
+        }
+
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        return layerCanvas.snapshot(parameters, null);
+    }
+
+    /**
+     * redesenha a linha de status (score e vidas) quando algum valor mudou
+     * @param columns colunas da area desenhada acima da linha
+     * @param rows linhas da area desenhada acima da linha
+     */
+    private void drawStatus(GraphicsContext gc, int score, int lives, int columns, int rows){
+        if (score == _lastScore && lives == _lastLives){
+            return;
+        }
+        int screenWidth = columns * _blockSize;
+        int screenHeight = (rows + 1) * _blockSize;
+
+        gc.clearRect(0, rows * _blockSize, screenWidth, _blockSize);
+        gc.fillText("Score: " + score, screenWidth - 80, screenHeight - _blockSize / 2);
+        for (int i = 0; i < lives; i++){
+            _imageStorage.draw(gc, Sprite.HEART, 10 + (i * _blockSize), screenHeight - _blockSize);
+        }
+
+        _lastScore = score;
+        _lastLives = lives;
+    }
+
+    /**
+     * desenha o sprite de uma casa, casas vazias nao desenham nada
+     */
+    private void drawCell(GraphicsContext gc, char elementAt, int i, int j, GameSnapshot snapshot){
+        Sprite sprite = spriteOf(elementAt, snapshot);
+        if (sprite != null){
+            _imageStorage.draw(gc, sprite, j * _blockSize, i * _blockSize);
+        }
+    }
+
+    /**
+     * sprite de um simbolo do estagio
+     * @return sprite, ou null para simbolos que nao sao desenhados
+     */
+    private static Sprite spriteOf(char elementAt, GameSnapshot snapshot){
+        switch (elementAt) {
+            case WALL:
+                return Sprite.WALL;
+            case '.':
+                return Sprite.PACDOT;
+            case 'X':
+                return Sprite.PACMAN;
+            case 'B':
+                return ghostSprite(Sprite.BLINKY, snapshot.isPoweredUp());
+            case 'P':
+                return ghostSprite(Sprite.PINKY, snapshot.isPoweredUp());
+            case 'I':
+                return ghostSprite(Sprite.INKY, snapshot.isPoweredUp());
+            case 'C':
+                return ghostSprite(Sprite.CLYDE, snapshot.isPoweredUp());
+            case 'F':
+                return getFruitSpriteByReward(snapshot.getFruitReward());
+            case 'G':
+                return Sprite.PILL;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * sprite de um fantasma, ou do fantasma consumivel caso o jogador esteja
+     * energizado
+     */
+    private static Sprite ghostSprite(Sprite ghost, boolean poweredUp){
+        if (!poweredUp){
+            return ghost;
+        }
+        return Sprite.CONSUMABLE_GHOST;
+    }
+
+    /**
+     * checa e indica qual o sprite da fruta que da a recompensa passada
+     * @param reward recompensa que a fruta deve dar
+     * @return sprite da fruta encontrada
+     */
+    private static Sprite getFruitSpriteByReward(int reward){
+        Sprite equivalentFruit;
+        switch (reward) {
+            case 100:
+                equivalentFruit = Sprite.CHERRY;
+                break;
+            case 300:
+                equivalentFruit = Sprite.STRAWBERRY;
+                break;
+            default:
+                equivalentFruit = Sprite.ORANGE;
+                break;
+        }
+        return equivalentFruit;
+    }
+}
@@ -5,33 +5,30 @@
  */
 package GraphicEngine;
 
-import java.util.HashMap;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
 
 /**
- * Classe auxiliar criada para salvar as imagens que serão utilizadas
+ * Classe auxiliar que guarda o atlas de texturas com todos os sprites. O
+ * atlas e decodificado uma unica vez ja no tamanho das casas, de forma que
+ * desenhar um sprite e copiar um retangulo do atlas sem redimensionar
  * @author matheus
  */
 public class ImageStorage {
-    HashMap<String, Image> images;
+    private static final String ATLAS_FILE = "atlas.png";
     
-    public ImageStorage(){
-        images = new HashMap<>();
-        images.put("blinky", new Image(resourcePath("blinky.png")));
-        images.put("cherry", new Image(resourcePath("cherry.png")));
-        images.put("clyde", new Image(resourcePath("clyde.png")));
-        images.put("consumableghost", new Image(resourcePath("consumableghost.png")));
-        images.put("emptyheart", new Image(resourcePath("emptyheart.png")));
-        images.put("heart", new Image(resourcePath("heart.png")));
-        images.put("inky", new Image(resourcePath("inky.png")));
-        images.put("menubg", new Image(resourcePath("menubg.png")));
-        images.put("orange", new Image(resourcePath("orange.png")));
-        images.put("pacdot", new Image(resourcePath("pacdot.png")));
-        images.put("pacman", new Image(resourcePath("pacman.png")));
-        images.put("pill", new Image(resourcePath("pill.png")));
-        images.put("pinky", new Image(resourcePath("pinky.png")));
-        images.put("strawberry", new Image(resourcePath("strawberry.png")));
-        images.put("wall", new Image(resourcePath("wall.png")));
+    private final Image _atlas;
+    private final int _tileSize;
+    
+    /**
+     * Construtor, decodifica o atlas e pode ser chamado fora da thread da
+     * interface para que a decodificacao nao atrase o menu
+     * @param tileSize tamanho em pixels de cada sprite na tela
+     */
+    public ImageStorage(int tileSize){
+        _tileSize = tileSize;
+        _atlas = new Image(resourcePath(ATLAS_FILE), Sprite.COLUMNS * tileSize, Sprite.ROWS * tileSize,
+                           false, true);
     }
     
     /**
@@ -44,11 +41,22 @@ public class ImageStorage {
     }
     
     /**
-     * devolve a imagem salva de mesmo nome da passada por parametro
-     * @param imageName nome do arquivo da imagem (sem extensão)
-     * @return imagem encontrada ou null caso não seja encontrada
+     * desenha um sprite com o canto superior esquerdo na posicao passada
+     * @param gc contexto grafico de destino
+     * @param sprite sprite desenhado
+     * @param x coordenada x em pixels
+     * @param y coordenada y em pixels
+     */
+    public void draw(GraphicsContext gc, Sprite sprite, double x, double y){
+        gc.drawImage(_atlas, sprite.column() * _tileSize, sprite.row() * _tileSize, _tileSize, _tileSize,
+                     x, y, _tileSize, _tileSize);
+    }
+    
+    /**
+     * getter para o tamanho dos sprites
+     * @return tamanho em pixels
      */
-    public Image getImage(String imageName){
-        return images.get(imageName);
+    public int getTileSize(){
+        return _tileSize;
     }
 }
@@ -0,0 +1,43 @@
+package GraphicEngine;
+
+import LogicEngine.Direction;
+import java.util.Arrays;
+import javafx.scene.input.KeyCode;
+
+/**
+ * mapeamento das teclas para as direcoes do jogador, por uma tabela indexada
+ * pelo ordinal do KeyCode, sem comparar nomes de teclas
+ * @author matheus
+ */
+public final class KeyBindings {
+    private static final byte[] DIRECTION_BY_KEY = new byte[KeyCode.values().length];
+
+    static {
+        Arrays.fill(DIRECTION_BY_KEY, (byte) Direction.NONE);
+        bind(KeyCode.LEFT, Direction.LEFT);
+        bind(KeyCode.A, Direction.LEFT);
+        bind(KeyCode.RIGHT, Direction.RIGHT);
+        bind(KeyCode.D, Direction.RIGHT);
+        bind(KeyCode.UP, Direction.UP);
+        bind(KeyCode.W, Direction.UP);
+        bind(KeyCode.DOWN, Direction.DOWN);
+        bind(KeyCode.S, Direction.DOWN);
+    }
+
+    private KeyBindings(){
+    }
+
+    private static void bind(KeyCode key, int direction){
+        DIRECTION_BY_KEY[key.ordinal()] = (byte) direction;
+    }
+
+    /**
+     * direcao associada a tecla
+     * @param key tecla
+     * @return codigo de Direction, ou Direction.NONE se a tecla nao move o
+     * jogador
+     */
+    public static int direction(KeyCode key){
+        return DIRECTION_BY_KEY[key.ordinal()];
+    }
+}
@@ -0,0 +1,70 @@
+package GraphicEngine;
+
+import LogicEngine.GameMetrics;
+import LogicEngine.LatencyHistogram;
+import java.util.Locale;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * painel de desempenho desenhado por cima do tabuleiro: quadros por segundo,
+ * tempo de quadro (p50 e p99), ticks por segundo e o p99 das fases mais
+ * caras, alem do tempo ate o primeiro quadro do menu e do jogo. Os valores
+ * mudam uma vez por segundo, quando as metricas publicam uma nova janela, e
+ * so entao os textos sao refeitos
+ * @author matheus
+ */
+public class MetricsOverlay {
+    private static final int WIDTH = 270;
+    private static final int LINE_HEIGHT = 14;
+    private static final int PADDING = 6;
+
+    private final GameMetrics _metrics;
+    private final String[] _lines = new String[6];
+    private LatencyHistogram _shownWindow;
+
+    /**
+     * Construtor
+     * @param metrics metricas exibidas
+     */
+    public MetricsOverlay(GameMetrics metrics){
+        _metrics = metrics;
+    }
+
+    /**
+     * desenha o painel no canto superior esquerdo, deve ser chamado depois
+     * do tabuleiro em todo quadro em que o painel estiver visivel
+     * @param gc graphic context do canvas do jogo
+     */
+    public void draw(GraphicsContext gc){
+        LatencyHistogram window = _metrics.lastWindow(GameMetrics.FRAME);
+        if (window != _shownWindow){
+            formatLines();
+            _shownWindow = window;
+        }
+
+        int height = _lines.length * LINE_HEIGHT + PADDING * 2;
+        gc.setFill(Color.BLACK);
+        gc.fillRect(0, 0, WIDTH, height);
+        gc.setFill(Color.LIME);
+        for (int i = 0; i < _lines.length; i++){
+            gc.fillText(_lines[i], PADDING, PADDING + (i + 1) * LINE_HEIGHT - 3);
+        }
+        gc.setFill(Color.BLACK);
+    }
+
+    private void formatLines(){
+        _lines[0] = String.format(Locale.ROOT, "FPS %.1f", _metrics.getFramesPerSecond());
+        _lines[1] = String.format(Locale.ROOT, "frame p50 %.2f ms  p99 %.2f ms",
+                                  _metrics.getFrameTimeP50Millis(), _metrics.getFrameTimeP99Millis());
+        _lines[2] = String.format(Locale.ROOT, "ticks/s %.1f  tick p99 %.3f ms",
+                                  _metrics.getTicksPerSecond(), _metrics.getTickTimeP99Millis());
+        _lines[3] = String.format(Locale.ROOT, "ghosts p99 %.3f ms  render p99 %.2f ms",
+                                  _metrics.getGhostUpdateP99Millis(), _metrics.getRenderTimeP99Millis());
+        double allocated = _metrics.getAllocatedBytesPerFrame();
+        _lines[4] = allocated < 0 ? "alloc/frame n/a"
+                                  : String.format(Locale.ROOT, "alloc/frame %.1f KB", allocated / 1024);
+        _lines[5] = "first frame menu " + _metrics.getTimeToFirstFrameMillis() + " ms  game "
+                    + _metrics.getTimeToFirstGameFrameMillis() + " ms";
+    }
+}
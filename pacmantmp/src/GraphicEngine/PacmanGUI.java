@@ -1,8 +1,34 @@
 package GraphicEngine;
 
-import LogicEngine.GameLogic;
-import java.util.HashSet;
+import LogicEngine.Autopilot;
+import LogicEngine.Direction;
+import LogicEngine.GameMetrics;
+import LogicEngine.GameSession;
+import LogicEngine.GameSnapshot;
+import LogicEngine.HighScore;
+import LogicEngine.HighScoreStore;
+import LogicEngine.InputQueue;
+import LogicEngine.InputRecorder;
+import LogicEngine.InputSource;
+import LogicEngine.Level;
+import LogicEngine.LevelCache;
+import LogicEngine.LevelLoader;
+import LogicEngine.MazeGenerator;
+import LogicEngine.QueuedInput;
+import LogicEngine.SimulationLoop;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.management.JMException;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.event.EventHandler;
 import javafx.scene.Group;
 import javafx.scene.Scene;
@@ -12,14 +38,11 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonType;
 import javafx.scene.image.Image;
+import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 
-import SystemElements.Board;
-import SystemElements.Fruit;
-import SystemElements.Ghost;
-import SystemElements.Pacman;
-import java.util.ArrayList;
 import javafx.animation.AnimationTimer;
 
 /**
@@ -32,64 +55,108 @@ public class PacmanGUI extends Application {
     
     static int BLOCKSIZE = 32;
     
+    /**
+     * maior area visivel em casas, levels maiores sao desenhados por uma
+     * camera que segue o jogador
+     */
+    static int MAX_VIEW_COLUMNS = 40;
+    static int MAX_VIEW_ROWS = 24;
+    
     static Stage gameStage;
     
     static Scene menuScene;
     static Scene gameScene;
+    static GraphicsContext menuGraphics;
+    static Image menuImage;
 
-    static ImageStorage imageStorage;
+    static CompletableFuture<List<Level>> levelsReady;
+    static CompletableFuture<BoardRenderer> rendererReady;
+    static CompletableFuture<Void> gameReady;
+    static BoardRenderer boardRenderer;
     
-    static Pacman player;
+    static List<String> gameLevelFiles = new ArrayList<>();
+    static LevelCache levelCache = new LevelCache();
+    static int ghostCount = 4;
+    static GameSession session;
+    static SimulationLoop simulation;
     
-    static Board gameBoard;
-    static GameLogic logicEngine;
     
+    static InputQueue inputQueue = new InputQueue(64);
+    static QueuedInput keyboardInput = new QueuedInput(inputQueue);
+    static volatile Autopilot autopilot;
+    static volatile boolean autopilotEnabled = false;
     
-    static ArrayList<Ghost> ghosts;
+    static Scene currentScene;
     
-    static HashSet<String> currentlyActiveKeys;
+    static AnimationTimer gameLoop;
     
-    static long lastPlayerMove = 0;
-    static long lastGhostMove = 0;
-    static long poweredUpTimer = 0;
+    static Path recordDirectory;
+    static Path recordingPath;
+    static InputRecorder recorder;
     
-    static int currentLevel = 1;
+    static GameMetrics metrics = new GameMetrics(false);
+    static MetricsOverlay metricsOverlay = new MetricsOverlay(metrics);
+    static boolean showMetrics = false;
     
-    static Scene currentScene;
+    /**
+     * recordes mostrados no menu
+     */
+    static int MENU_SCORES = 5;
+    static CompletableFuture<HighScoreStore> highScoresReady;
+    static HighScoreStore highScores;
     
     @Override
     public void start(Stage stage) {
         stage.setTitle("Pacman");
         
-        gameBoard = new Board();
-        player = new Pacman();
-        
-        Ghost Blinky = new Ghost("Blinky");
-        Ghost Pinky = new Ghost("Pinky");
-        Ghost Inky = new Ghost("Inky", false);
-        Ghost Clyde = new Ghost("Clyde", false);
+        CompletableFuture<ImageStorage> imageStorageReady =
+                CompletableFuture.supplyAsync(() -> new ImageStorage(BLOCKSIZE));
         
-        ghosts = new ArrayList<>();
-        
-        ghosts.add(Blinky);
-        ghosts.add(Pinky);
-        ghosts.add(Inky);
-        ghosts.add(Clyde);
+        String record = getParameters().getNamed().get("record");
+        if (record != null){
+            recordDirectory = Paths.get(record);
+        }
         
-        imageStorage = new ImageStorage();
+        String ghosts = getParameters().getNamed().get("ghosts");
+        if (ghosts != null){
+            try {
+                ghostCount = Math.max(0, Integer.parseInt(ghosts));
+            } catch (NumberFormatException e){
+                System.err.println("invalid ghost count " + ghosts + ": " + e.getMessage());
+            }
+            if (ghostCount != 4 && recordDirectory != null){
+                System.err.println("games with --ghosts are not recorded");
+                recordDirectory = null;
+            }
+        }
         
-        screenWidth = gameBoard.getWidth() * BLOCKSIZE;
-        screenHeight = (gameBoard.getHeight() + 1) * BLOCKSIZE;
+        String maze = getParameters().getNamed().get("maze");
+        String mazeSeed = getParameters().getNamed().get("maze-seed");
+        List<String> levelFiles = getParameters().getUnnamed();
+        levelsReady = CompletableFuture.supplyAsync(
+                () -> maze != null ? generateMaze(maze, mazeSeed) : loadLevels(levelFiles));
         
-        logicEngine = new GameLogic(gameBoard, player);
+        String scores = getParameters().getNamed().getOrDefault("scores", "pacman-scores" + HighScoreStore.EXTENSION);
+        highScoresReady = CompletableFuture.supplyAsync(() -> openHighScores(scores));
         
-        for (Ghost ghost: ghosts){
-            logicEngine.addEnemy(ghost);
+        metrics.setEnabled(getParameters().getUnnamed().contains("--metrics"));
+        autopilotEnabled = getParameters().getUnnamed().contains("--autopilot");
+        if (autopilotEnabled){
+            startAutopilot();
+        }
+        try {
+            metrics.register("PACMANFX:type=GameMetrics");
+        } catch (JMException e){
+            System.err.println("could not register metrics MBean: " + e.getMessage());
         }
         
-        logicEngine.setLevelFruit(new Fruit(100));
-        logicEngine.restartPositions();
+        rendererReady = imageStorageReady.thenCombine(levelsReady,
+                (storage, levels) -> new BoardRenderer(storage, BLOCKSIZE, viewColumns(levels), viewRows(levels)));
+        prepareGame();
         
+        List<Level> classic = Collections.singletonList(Level.standard());
+        screenWidth = viewColumns(classic) * BLOCKSIZE;
+        screenHeight = (viewRows(classic) + 1) * BLOCKSIZE;
         gameStage = stage;
         
         menuScene = setMenuScene();
@@ -98,70 +165,192 @@ public class PacmanGUI extends Application {
         currentScene = menuScene;
         
         loadStage(gameStage);
+        measureFirstFrame();
+        
+        levelsReady.thenAcceptAsync(PacmanGUI::fitScreen, Platform::runLater);
+        highScoresReady.thenAcceptAsync(store -> {
+            highScores = store;
+            drawMenu();
+        }, Platform::runLater);
     }
     
     /**
-     * atualiza o tabuleiro movimentando as entidades necessárias
-     * @param gc
+     * colunas visiveis na tela para os levels dados
+     * @param levels levels do jogo
+     * @return colunas da area visivel
      */
-    private static void update(GraphicsContext gc){
-        gc.clearRect(0, 0, screenWidth, screenHeight);
-        
-        if (player.getLives() == 0){
-            gameover();
-        } else if (logicEngine.levelEnded()){
-            nextLevel();
-            currentLevel++;
+    private static int viewColumns(List<Level> levels){
+        int maxWidth = 0;
+        for (Level level : levels){
+            maxWidth = Math.max(maxWidth, level.getWidth());
         }
-        
-        long currentTime = System.currentTimeMillis();
-        
-        if (player.isPoweredUp()){
-            if (poweredUpTimer == 0){
-                poweredUpTimer = currentTime;
-            }
-            else if (currentTime > poweredUpTimer + 5000 - (1000 * (currentLevel - 1))) {
-                player.powerDown();
-                logicEngine.resetConsumedGhostReward();
-                poweredUpTimer = 0;
+        return Math.min(maxWidth, MAX_VIEW_COLUMNS);
+    }
+    
+    /**
+     * linhas visiveis na tela para os levels dados, sem a linha do placar
+     * @param levels levels do jogo
+     * @return linhas da area visivel
+     */
+    private static int viewRows(List<Level> levels){
+        int maxHeight = 0;
+        for (Level level : levels){
+            maxHeight = Math.max(maxHeight, level.getHeight());
+        }
+        return Math.min(maxHeight, MAX_VIEW_ROWS);
+    }
+    
+    /**
+     * ajusta a tela ao tamanho dos levels carregados. O menu e mostrado antes
+     * com o tamanho do level classico e so e refeito se o tamanho mudou;
+     * chamado quando os levels ficam prontos e antes do jogo comecar
+     * @param levels levels do jogo
+     */
+    private static void fitScreen(List<Level> levels){
+        int width = viewColumns(levels) * BLOCKSIZE;
+        int height = (viewRows(levels) + 1) * BLOCKSIZE;
+        if (width == screenWidth && height == screenHeight){
+            return;
+        }
+        screenWidth = width;
+        screenHeight = height;
+        boolean showingMenu = currentScene == menuScene;
+        menuScene = setMenuScene();
+        loadMenuBinds();
+        if (showingMenu){
+            currentScene = menuScene;
+            loadStage(gameStage);
+            gameStage.sizeToScene();
+        }
+    }
+    
+    /**
+     * abre o arquivo de recordes, fora da thread da interface
+     * @param scores caminho do arquivo
+     * @return historico aberto, ou null se o arquivo nao puder ser aberto
+     */
+    private static HighScoreStore openHighScores(String scores){
+        try {
+            return HighScoreStore.open(Paths.get(scores), HighScoreStore.DEFAULT_TOP);
+        } catch (IOException | InvalidPathException e){
+            System.err.println("could not open high scores " + scores + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * cria o proximo jogo em outra thread enquanto o menu e mostrado, assim
+     * que os levels estiverem carregados; o jogo so e usado depois de
+     * gameReady terminar
+     */
+    private static void prepareGame(){
+        gameReady = levelsReady.thenAcceptAsync(PacmanGUI::newGame);
+    }
+    
+    /**
+     * espera os levels, o atlas de sprites e o jogo preparados em outras
+     * threads, o que normalmente ja terminou quando o jogador aperta espaco
+     * @return true se o jogo puder comecar
+     */
+    private static boolean awaitGame(){
+        try {
+            fitScreen(levelsReady.join());
+            boardRenderer = rendererReady.join();
+            gameReady.join();
+            return true;
+        } catch (CompletionException e){
+            System.err.println("could not prepare the game: " + e.getCause());
+            return false;
+        }
+    }
+    
+    /**
+     * registra o tempo ate o primeiro quadro, no primeiro pulso depois de o
+     * menu ser mostrado
+     */
+    private static void measureFirstFrame(){
+        new AnimationTimer(){
+            @Override
+            public void handle(long now){
+                stop();
+                metrics.firstFrame();
             }
+        }.start();
+    }
+    
+    /**
+     * desenha o ultimo retrato publicado pela simulacao, que roda em sua
+     * propria thread
+     * @param gc
+     * @param now momento do quadro, em System.nanoTime
+     */
+    private static void update(GraphicsContext gc, long now){
+        metrics.frame();
+        metrics.firstGameFrame();
+        
+        GameSnapshot snapshot = simulation.latest();
+        if (snapshot.isGameOver()){
+            gameover(snapshot);
+            return;
         }
         
-        if(currentTime >= (lastPlayerMove + 100)) {
-            int nextX = player.getPosX();
-            int nextY = player.getPosY();
-            
-            if (currentlyActiveKeys.contains("LEFT") || currentlyActiveKeys.contains("A"))
-                nextY--;
-
-            if (currentlyActiveKeys.contains("RIGHT") || currentlyActiveKeys.contains("D"))
-                nextY++;
-
-            if (currentlyActiveKeys.contains("UP") || currentlyActiveKeys.contains("W"))
-                nextX--;
-
-            if (currentlyActiveKeys.contains("DOWN") || currentlyActiveKeys.contains("S"))
-                nextX++;
-            
-            if (nextX != player.getPosX() || nextY != player.getPosY()){
-                logicEngine.tryMovePlayer(nextX, nextY);
-            }
-            
-            lastPlayerMove = currentTime;
+        long renderStart = metrics.begin();
+        boardRenderer.draw(gc, snapshot, now);
+        if (showMetrics){
+            metricsOverlay.draw(gc);
         }
-
-        if (currentTime >= (lastGhostMove + 400)){
-            logicEngine.updateEnemiesPositions();
-            lastGhostMove = currentTime;
+        metrics.end(GameMetrics.RENDER, renderStart);
+    }
+    
+    /**
+     * mostra ou esconde o painel de metricas, as metricas sao coletadas
+     * enquanto o painel estiver visivel (ou desde o inicio com --metrics)
+     */
+    private static void toggleMetrics(){
+        showMetrics = !showMetrics;
+        if (showMetrics){
+            metrics.setEnabled(true);
+        } else{
+            boardRenderer.invalidate();
         }
-        
-        if (logicEngine.playerHit()){
-            player.setLives(player.getLives() - 1);
-            logicEngine.restartPositions();
+    }
+    
+    /**
+     * liga ou desliga o piloto automatico, que vale tambem para os proximos
+     * jogos (ligado desde o inicio com --autopilot)
+     */
+    private static void toggleAutopilot(){
+        autopilotEnabled = !autopilotEnabled;
+        if (autopilotEnabled && autopilot == null){
+            startAutopilot();
+        } else if (autopilot != null){
+            autopilot.setEnabled(autopilotEnabled);
+        }
+    }
+    
+    /**
+     * cria o piloto automatico na primeira vez que ele e ligado, o mesmo
+     * piloto e usado nos jogos seguintes
+     */
+    private static void startAutopilot(){
+        Autopilot created = new Autopilot(keyboardInput, System.nanoTime(),
+                                          Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                                          Autopilot.DEFAULT_HORIZON, Autopilot.DEFAULT_TREE_NODES);
+        created.setEnabled(true);
+        autopilot = created;
+    }
+    
+    /**
+     * grava o relatorio das metricas coletadas ate agora no diretorio atual
+     */
+    private static void dumpMetrics(){
+        Path path = Paths.get("pacman-metrics-" + System.currentTimeMillis() + ".csv");
+        try {
+            metrics.writeReport(path);
+            System.err.println("metrics written to " + path.toAbsolutePath());
+        } catch (IOException e){
+            System.err.println("could not write metrics to " + path + ": " + e.getMessage());
         }
-        
-        
-        drawBoard(gc);
     }
     
     /**
@@ -173,8 +362,12 @@ public class PacmanGUI extends Application {
             public void handle(final KeyEvent ke){
                 String keyPressed = ke.getCode().toString();
                 if (keyPressed.equals("SPACE")){
+                    if (!awaitGame()){
+                        return;
+                    }
                     gameScene = setGameScene();
                     loadGameBinds();
+                    simulation.start();
                     
                     currentScene = gameScene;
                     loadStage(gameStage);
@@ -186,32 +379,48 @@ public class PacmanGUI extends Application {
     }
     
     /**
-     * cria os event handlers para o jogo
+     * cria os event handlers para o jogo, deve ser chamado antes da
+     * simulacao comecar, que e quem consome a fila de entrada
      */
     private static void loadGameBinds(){
-        currentlyActiveKeys = new HashSet<>();
+        keyboardInput.reset();
         
         gameScene.setOnKeyPressed(new EventHandler<KeyEvent>(){
             @Override
             public void handle(final KeyEvent ke){
-                String keyPressed = ke.getCode().toString();
-                if (keyPressed.equals("ESCAPE")){
+                if (ke.getCode() == KeyCode.ESCAPE){
                     quitGame();
+                } else if (ke.getCode() == KeyCode.F3){
+                    toggleMetrics();
+                } else if (ke.getCode() == KeyCode.F4){
+                    dumpMetrics();
+                } else if (ke.getCode() == KeyCode.F6){
+                    toggleAutopilot();
                 }
-                if (currentlyActiveKeys.isEmpty())
-                    currentlyActiveKeys.add(keyPressed);
+                queueKey(ke.getCode(), true);
             }
         });
         
         gameScene.setOnKeyReleased(new EventHandler<KeyEvent>(){
             @Override
             public void handle(final KeyEvent ke){
-                String keyReleased = ke.getCode().toString();
-                currentlyActiveKeys.remove(keyReleased);
+                queueKey(ke.getCode(), false);
             }
         });
     }
     
+    /**
+     * coloca o evento de uma tecla de direcao na fila de entrada do jogo
+     * @param key tecla apertada ou solta
+     * @param pressed true se a tecla foi apertada
+     */
+    private static void queueKey(KeyCode key, boolean pressed){
+        int direction = KeyBindings.direction(key);
+        if (direction != Direction.NONE){
+            inputQueue.offer(InputQueue.encode(direction, pressed, System.currentTimeMillis()));
+        }
+    }
+    
     /**
      * creates a windows to quit game
      */
@@ -243,17 +452,34 @@ public class PacmanGUI extends Application {
      */
     private static Scene setMenuScene(){
         Canvas gameCanvas = new Canvas(screenWidth, screenHeight);
-        GraphicsContext gc = gameCanvas.getGraphicsContext2D();
+        menuGraphics = gameCanvas.getGraphicsContext2D();
         
-        Image menuImage = new Image(resourcePath("menubg.png"));
+        menuImage = new Image(resourcePath("menubg.png"), screenWidth, screenHeight, false, true);
         
-        gc.drawImage(menuImage, 0, 0, screenWidth, screenHeight);
+        drawMenu();
         
         Group root = new Group();
         root.getChildren().add(gameCanvas);
         return new Scene(root, screenWidth, screenHeight);
     }
     
+    /**
+     * desenha o fundo do menu e os melhores jogos guardados
+     */
+    private static void drawMenu(){
+        menuGraphics.drawImage(menuImage, 0, 0);
+        if (highScores == null){
+            return;
+        }
+        List<HighScore> top = highScores.getTopScores();
+        menuGraphics.setFill(Color.WHITE);
+        for (int i = 0; i < Math.min(top.size(), MENU_SCORES); i++){
+            HighScore score = top.get(i);
+            menuGraphics.fillText((i + 1) + ". " + score.getScore() + "  level " + score.getLevelReached(),
+                                  BLOCKSIZE, screenHeight - (MENU_SCORES - i) * BLOCKSIZE / 2);
+        }
+    }
+    
     /**
      * cria a scene do jogo
      * @return scene do jogo
@@ -262,14 +488,20 @@ public class PacmanGUI extends Application {
         Canvas gameCanvas = new Canvas(screenWidth, screenHeight);
         GraphicsContext gc = gameCanvas.getGraphicsContext2D();
         
-        new AnimationTimer()
+        if (gameLoop != null){
+            gameLoop.stop();
+        }
+        boardRenderer.invalidate();
+        
+        gameLoop = new AnimationTimer()
         {
             @Override
             public void handle(long currentNanoTime)
             {
-                update(gc);
+                update(gc, currentNanoTime);
             }
-        }.start();
+        };
+        gameLoop.start();
         
         Group root = new Group();
         root.getChildren().add(gameCanvas);
@@ -277,133 +509,167 @@ public class PacmanGUI extends Application {
     }
     
     /**
-     * desenha o tabuleiro com os dados atuais
-     * @param gc graphic context do canvas em que o desenho será feito
+     * acha o caminho de um arquivo baseado em seu nome
+     * @param fileName nome do arquivo sendo procurado
+     * @return caminho do arquivo
+     */
+    public static String resourcePath(String fileName){
+        return PacmanGUI.class.getResource(fileName).toString();    
+    }
+    
+    /**
+     * carrega os levels passados na linha de comando (arquivos texto ou
+     * compilados, as opcoes comecadas por -- sao ignoradas), usando o level classico caso nenhum seja passado ou
+     * nenhum possa ser lido
+     * @param files caminhos dos arquivos de level
+     * @return sequencia de levels do jogo
      */
-    private static void drawBoard(GraphicsContext gc){
-        
-        for (int i = 0; i < gameBoard.getHeight(); i++){
-            for (int j = 0; j < gameBoard.getWidth(); j++){
-                Image spriteImage;
-                char elementAt = logicEngine.getCurrentStage()[i][j];
-                switch (elementAt) {
-                    case '■':
-                        spriteImage = imageStorage.getImage("wall");
-                        break;
-                    case '.':
-                        spriteImage = imageStorage.getImage("pacdot");
-                        break;
-                    case 'X':
-                        spriteImage = imageStorage.getImage("pacman");
-                        break;
-                    case 'B':
-                        if (!player.isPoweredUp()){
-                            spriteImage = imageStorage.getImage("blinky");
-                        }else{
-                            spriteImage = imageStorage.getImage("consumableghost");
-                        }
-                        break;
-                    case 'P':
-                        if (!player.isPoweredUp()){
-                            spriteImage = imageStorage.getImage("pinky");
-                        }else{
-                            spriteImage = imageStorage.getImage("consumableghost");
-                        }
-                        break;
-                    case 'I':
-                        if (!player.isPoweredUp()){
-                            spriteImage = imageStorage.getImage("inky");
-                        }else{
-                            spriteImage = imageStorage.getImage("consumableghost");
-                        }
-                        break;
-                    case 'C':
-                        if (!player.isPoweredUp()){
-                            spriteImage = imageStorage.getImage("clyde");
-                        }else{
-                            spriteImage = imageStorage.getImage("consumableghost");
-                        }
-                        break;
-                    case 'F':
-                        String fruit = getFruitNameByReward(logicEngine.getLevelFruit().getReward());
-                        
-                        spriteImage = imageStorage.getImage(fruit);
-                        break;
-                    case 'G':
-                        spriteImage = imageStorage.getImage("pill");
-                        break;
-                    default:
-                        continue;
-                }
-                gc.drawImage(spriteImage, j * BLOCKSIZE , i * BLOCKSIZE, BLOCKSIZE, BLOCKSIZE);
+    private static List<Level> loadLevels(List<String> files){
+        List<Level> levels = new ArrayList<>();
+        for (String file : files){
+            if (file.startsWith("--")){
+                continue;
+            }
+            try {
+                Path path = Paths.get(file).toAbsolutePath();
+                levels.add(levelCache.get(path));
+                gameLevelFiles.add(path.toString());
+            } catch (IOException e){
+                System.err.println("could not load level " + file + ": " + e.getMessage());
             }
         }
-        gc.fillText("Score: " + logicEngine.getCurrentScore(), screenWidth - 80, screenHeight - BLOCKSIZE / 2);
-        for (int i = 0; i < player.getLives(); i++){
-            gc.drawImage(imageStorage.getImage("heart"), 10 + (i * BLOCKSIZE), screenHeight - BLOCKSIZE, BLOCKSIZE, BLOCKSIZE);
+        if (levels.isEmpty()){
+            return Collections.singletonList(Level.standard());
         }
-        
+        return levels;
     }
     
     /**
-     * checa e indica qual o nome da fruta que da a recompensa passada
-     * @param reward recompensa que a fruta deve dar
-     * @return fruta encontrada
+     * gera um labirinto procedural para --maze=ALTURAxLARGURA, gravando-o no
+     * diretorio de registros quando as partidas sao registradas para que
+     * possam ser reproduzidas
+     * @param size tamanho pedido, como 201x301
+     * @param seed semente do labirinto, ou null para a semente 0
+     * @return sequencia com o level gerado, ou o level classico caso o
+     * tamanho seja invalido
      */
-    private static String getFruitNameByReward(int reward){
-        String equivalentFruit;
-        switch (reward) {
-            case 100:
-                equivalentFruit = "cherry";
-                break;
-            case 300:
-                equivalentFruit = "strawberry";
-                break;
-            default:
-                equivalentFruit = "orange";
-                break;
-        }
-        return equivalentFruit;
+    private static List<Level> generateMaze(String size, String seed){
+        Level level;
+        try {
+            String[] dimensions = size.toLowerCase().split("x");
+            level = MazeGenerator.generate(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]),
+                                           seed == null ? 0 : Long.parseLong(seed));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e){
+            System.err.println("invalid maze size " + size + ": " + e.getMessage());
+            return Collections.singletonList(Level.standard());
+        }
+        if (recordDirectory != null){
+            Path path = recordDirectory.resolve(level.getName() + LevelLoader.BINARY_EXTENSION).toAbsolutePath();
+            try {
+                LevelLoader.writeBinary(level, path);
+                gameLevelFiles.add(path.toString());
+            } catch (IOException e){
+                System.err.println("could not save maze to " + path + ": " + e.getMessage());
+            }
+        }
+        return Collections.singletonList(level);
     }
     
     /**
-     * acha o caminho de um arquivo baseado em seu nome
-     * @param fileName nome do arquivo sendo procurado
-     * @return caminho do arquivo
+     * cria um novo jogo com os levels carregados, um jogador e os fantasmas
+     * iniciais; roda fora da thread da interface, por prepareGame
+     * @param levels levels do jogo
      */
-    public static String resourcePath(String fileName){
-        return PacmanGUI.class.getResource(fileName).toString();    
+    private static void newGame(List<Level> levels){
+        if (simulation != null){
+            simulation.stop();
+        }
+        stopRecording();
+        
+        long seed = System.nanoTime();
+        PlayerInput playerInput = new PlayerInput(keyboardInput);
+        InputSource input = playerInput;
+        if (recordDirectory != null){
+            recordingPath = recordDirectory.resolve("pacman-" + seed + ".pmr");
+            try {
+                recorder = new InputRecorder(recordingPath, seed, gameLevelFiles, input);
+                input = recorder;
+            } catch (IOException e){
+                System.err.println("could not record game to " + recordingPath + ": " + e.getMessage());
+            }
+        }
+        
+        session = GameSession.hordeGame(levels, ghostCount, seed, input);
+        session.setMetrics(metrics);
+        playerInput.setSession(session);
+        simulation = new SimulationLoop(session);
     }
     
     /**
-     * reinicia o jogo perdido
+     * fecha o registro da partida atual, descartando registros de partidas
+     * que nem chegaram a comecar
      */
-    private static void gameover(){
-        player = new Pacman();
-        
-        logicEngine = new GameLogic(gameBoard, player);
-        
-        for (Ghost ghost: ghosts){
-            logicEngine.addEnemy(ghost);
+    private static void stopRecording(){
+        if (recorder == null){
+            return;
+        }
+        try {
+            recorder.close();
+            if (recorder.getTickCount() == 0){
+                Files.deleteIfExists(recordingPath);
+            }
+        } catch (IOException e){
+            System.err.println("could not finish recording " + recordingPath + ": " + e.getMessage());
+        }
+        recorder = null;
+    }
+    
+    @Override
+    public void stop(){
+        if (gameReady != null){
+            try {
+                gameReady.join();
+            } catch (CompletionException e){
+                // o jogo nem chegou a ser criado, nao ha o que parar
+            }
+        }
+        if (simulation != null){
+            simulation.stop();
+        }
+        if (autopilot != null){
+            autopilot.shutdown();
+        }
+        stopRecording();
+        HighScoreStore store = highScoresReady != null ? highScoresReady.join() : null;
+        if (store != null){
+            try {
+                store.close();
+            } catch (IOException e){
+                System.err.println("could not save high scores: " + e.getMessage());
+            }
         }
-        
-        logicEngine.setLevelFruit(new Fruit(100));
-        
-        currentScene = menuScene;
-        
-        loadStage(gameStage);
     }
     
     /**
-     * avanca para o proximo level
+     * guarda o resultado do jogo perdido e o reinicia, a gravacao do
+     * recorde acontece fora da thread do JavaFX
+     * @param snapshot ultimo retrato do jogo
      */
-    private static void nextLevel(){
-        logicEngine.nextLevel();
-        if (logicEngine.getLevelFruit().getReward() == 100){
-            logicEngine.setLevelFruit(new Fruit(300));
-        }else{
-            logicEngine.setLevelFruit(new Fruit(500));
+    private static void gameover(GameSnapshot snapshot){
+        gameLoop.stop();
+        
+        if (highScores != null){
+            highScores.record(new HighScore(snapshot.getScore(), snapshot.getCurrentLevel(),
+                                            snapshot.getTick() * GameSession.TICK_MILLIS,
+                                            snapshot.getGhostsEaten(), System.currentTimeMillis()));
+            drawMenu();
         }
+        
+        prepareGame();
+        
+        currentScene = menuScene;
+        
+        loadStage(gameStage);
     }
     
     /**
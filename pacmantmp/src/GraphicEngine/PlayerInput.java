@@ -0,0 +1,58 @@
+package GraphicEngine;
+
+import LogicEngine.Autopilot;
+import LogicEngine.GameSession;
+import LogicEngine.InputSource;
+
+/**
+ * fonte de comandos de um jogo da interface: repassa o teclado ate o piloto
+ * automatico ser criado e, a partir dai, o piloto (que repassa o teclado
+ * enquanto estiver desligado). O piloto e ligado a sessao deste jogo na
+ * propria thread da simulacao, na primeira consulta depois de ser criado,
+ * entao um unico piloto serve todos os jogos
+ * @author matheus
+ */
+class PlayerInput implements InputSource {
+    private final InputSource _keyboard;
+    private GameSession _session;
+    private Autopilot _attached;
+
+    /**
+     * Construtor
+     * @param keyboard fonte usada enquanto nao houver piloto
+     */
+    PlayerInput(InputSource keyboard){
+        _keyboard = keyboard;
+    }
+
+    /**
+     * define a sessao que consulta esta fonte, antes da simulacao comecar
+     * @param session sessao do jogo
+     */
+    void setSession(GameSession session){
+        _session = session;
+    }
+
+    @Override
+    public int nextDirection(){
+        Autopilot autopilot = PacmanGUI.autopilot;
+        if (autopilot == null){
+            return _keyboard.nextDirection();
+        }
+        if (_attached != autopilot){
+            autopilot.attach(_session);
+            _attached = autopilot;
+        }
+        return autopilot.nextDirection();
+    }
+
+    @Override
+    public void moved(int direction){
+        Autopilot autopilot = _attached;
+        if (autopilot != null){
+            autopilot.moved(direction);
+        } else{
+            _keyboard.moved(direction);
+        }
+    }
+}
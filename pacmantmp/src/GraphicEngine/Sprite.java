@@ -0,0 +1,63 @@
+package GraphicEngine;
+
+/**
+ * sprites do atlas de texturas, a ordem das constantes e a ordem dos tiles
+ * no atlas (linha a linha, COLUMNS tiles por linha)
+ * @author matheus
+ */
+public enum Sprite {
+    WALL("wall"),
+    PACDOT("pacdot"),
+    PILL("pill"),
+    PACMAN("pacman"),
+    BLINKY("blinky"),
+    PINKY("pinky"),
+    INKY("inky"),
+    CLYDE("clyde"),
+    CONSUMABLE_GHOST("consumableghost"),
+    CHERRY("cherry"),
+    STRAWBERRY("strawberry"),
+    ORANGE("orange"),
+    HEART("heart"),
+    EMPTY_HEART("emptyheart");
+
+    /**
+     * quantidade de tiles em cada linha do atlas
+     */
+    public static final int COLUMNS = 8;
+
+    /**
+     * quantidade de linhas de tiles do atlas
+     */
+    public static final int ROWS = (values().length + COLUMNS - 1) / COLUMNS;
+
+    private final String _fileName;
+
+    private Sprite(String fileName){
+        _fileName = fileName;
+    }
+
+    /**
+     * nome da imagem original do sprite (sem extensao)
+     * @return nome do arquivo
+     */
+    public String getFileName(){
+        return _fileName;
+    }
+
+    /**
+     * coluna do tile no atlas
+     * @return coluna
+     */
+    public int column(){
+        return ordinal() % COLUMNS;
+    }
+
+    /**
+     * linha do tile no atlas
+     * @return linha
+     */
+    public int row(){
+        return ordinal() / COLUMNS;
+    }
+}
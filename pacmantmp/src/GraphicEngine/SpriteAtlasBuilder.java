@@ -0,0 +1,76 @@
+package GraphicEngine;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/**
+ * ferramenta que monta o atlas de texturas (atlas.png) a partir das imagens
+ * originais dos sprites, cada uma redimensionada para um tile quadrado na
+ * posicao dada pelo enum Sprite
+ * uso: SpriteAtlasBuilder pastaDasImagens atlas.png [tamanhoDoTile]
+ * @author matheus
+ */
+public class SpriteAtlasBuilder {
+    /**
+     * tamanho padrao de cada tile, o dobro do BLOCKSIZE padrao para que o
+     * atlas continue nitido quando reduzido na carga
+     */
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    /**
+     * @param args pasta das imagens, arquivo de saida e tamanho do tile
+     * @throws IOException caso alguma imagem nao possa ser lida ou escrita
+     */
+    public static void main(String[] args) throws IOException{
+        if (args.length < 2){
+            System.err.println("usage: SpriteAtlasBuilder <source dir> <atlas.png> [tile size]");
+            System.exit(1);
+        }
+
+        File sourceDir = new File(args[0]);
+        int tileSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_TILE_SIZE;
+
+        BufferedImage atlas = new BufferedImage(Sprite.COLUMNS * tileSize, Sprite.ROWS * tileSize,
+                                                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = atlas.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+        for (Sprite sprite : Sprite.values()){
+            File file = new File(sourceDir, sprite.getFileName() + ".png");
+            BufferedImage image = ImageIO.read(file);
+            if (image == null){
+                throw new IOException("could not read " + file);
+            }
+            graphics.drawImage(scaleDown(image, tileSize), sprite.column() * tileSize, sprite.row() * tileSize, null);
+        }
+        graphics.dispose();
+
+        ImageIO.write(atlas, "png", new File(args[1]));
+    }
+
+    /**
+     * reduz a imagem para o tamanho do tile pela metade a cada passo, o que
+     * evita o serrilhado de uma reducao bicubica direta de ~400 para 64 pixels
+     */
+    private static BufferedImage scaleDown(BufferedImage image, int tileSize){
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(tileSize, width / 2);
+            height = Math.max(tileSize, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (width != tileSize || height != tileSize);
+        return current;
+    }
+}
@@ -0,0 +1,539 @@
+package LogicEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * piloto automatico do jogador por busca em arvore de Monte Carlo: a cada
+ * tick simula a partir de copias da sessao muitas jogadas curtas, com os
+ * primeiros passos escolhidos pela arvore (UCT) e o resto aleatorio, e
+ * escolhe a direcao mais visitada. Como o jogo e deterministico dado os
+ * comandos do jogador, cada no da arvore e exatamente um estado do jogo, e
+ * a subarvore da direcao escolhida e reaproveitada no tick seguinte.
+ * Cada thread tem sua propria arvore (paralelismo pela raiz), guardada em
+ * vetores de primitivos alocados uma unica vez, e suas proprias sessoes: a
+ * raiz, copiada da sessao real a cada decisao, e a sessao de rascunho, que
+ * volta a raiz por GameSession.restore no inicio de cada simulacao, entao
+ * uma iteracao nao aloca nada. As contagens das raizes sao somadas na
+ * decisao. Com um numero fixo de iteracoes por decisao o
+ * resultado so depende da semente e do numero de threads, o que permite
+ * medir a dificuldade dos fantasmas sem interface grafica (ver main).
+ * Desligado, repassa os comandos da fonte manual
+ * @author matheus
+ */
+public class Autopilot implements InputSource {
+    /**
+     * tempo de busca por decisao caso nenhum seja definido
+     */
+    public static final long DEFAULT_BUDGET_MILLIS = 30;
+
+    /**
+     * quantos ticks a frente cada simulacao olha caso nenhum seja definido
+     */
+    public static final int DEFAULT_HORIZON = 24;
+
+    /**
+     * nos por arvore caso nenhum tamanho seja definido
+     */
+    public static final int DEFAULT_TREE_NODES = 1 << 15;
+
+    private static final int NONE = -1;
+
+    private static final double EXPLORATION = 1.0;
+
+    /**
+     * chance, em 1 / TURN_CHANCE, de a parte aleatoria da simulacao trocar de
+     * direcao a cada tick, como RandomInput
+     */
+    private static final int TURN_CHANCE = 8;
+
+    /**
+     * arvore de busca em vetores paralelos, indexados pelo no; os filhos
+     * ficam em _children[no * Direction.COUNT + direcao]
+     */
+    private static final class Tree {
+        final int[] _children;
+        final int[] _visits;
+        final double[] _value;
+        int _size = 0;
+
+        Tree(int capacity){
+            _children = new int[capacity * Direction.COUNT];
+            _visits = new int[capacity];
+            _value = new double[capacity];
+        }
+
+        int newNode(){
+            if (_size == _visits.length){
+                return NONE;
+            }
+            int node = _size++;
+            for (int direction = 0; direction < Direction.COUNT; direction++){
+                _children[node * Direction.COUNT + direction] = NONE;
+            }
+            _visits[node] = 0;
+            _value[node] = 0;
+            return node;
+        }
+
+        int child(int node, int direction){
+            return _children[node * Direction.COUNT + direction];
+        }
+    }
+
+    /**
+     * estado de busca de uma thread: sua arvore, uma arvore reserva para
+     * onde a subarvore reaproveitada e copiada, as sessoes da raiz e de
+     * rascunho e os vetores de trabalho
+     */
+    private final class Worker implements Callable<Void> {
+        private Tree _tree;
+        private Tree _spare;
+        private final ScriptedInput _input = new ScriptedInput();
+        private final int[] _path;
+        private final int[] _stack;
+        private final int[] _untried = new int[Direction.COUNT];
+        private SplittableRandom _random;
+
+        private GameSession _root;
+        private GameSession _scratch;
+        private long _iterations;
+
+        Worker(int treeNodes, long seed){
+            _tree = new Tree(treeNodes);
+            _spare = new Tree(treeNodes);
+            _path = new int[_horizon + 1];
+            _stack = new int[2 * treeNodes];
+            _random = new SplittableRandom(seed);
+        }
+
+        /**
+         * prepara a busca de uma decisao copiando a sessao real para a raiz,
+         * na thread da sessao; as sessoes do worker so sao criadas (por
+         * fork) na primeira decisao
+         */
+        void prepare(GameSession session, boolean reuse, int chosen){
+            if (_root == null){
+                _root = session.fork(InputSource.NONE);
+                _scratch = _root.fork(_input);
+            } else{
+                _root.restore(session);
+            }
+            if (reuse){
+                reroot(chosen);
+            } else{
+                _tree._size = 0;
+            }
+            if (_tree._size == 0){
+                _tree.newNode();
+            }
+        }
+
+        @Override
+        public Void call(){
+            long deadline = System.nanoTime() + _budgetNanos;
+            _iterations = 0;
+            while (_fixedIterations > 0 ? _iterations < _fixedIterations : System.nanoTime() < deadline){
+                iterate();
+                _iterations++;
+            }
+            return null;
+        }
+
+        /**
+         * uma iteracao: desce a arvore por UCT, expande um filho, completa a
+         * simulacao aleatoriamente ate o horizonte e propaga o valor
+         */
+        private void iterate(){
+            Tree tree = _tree;
+            GameSession game = _scratch;
+            game.restore(_root);
+            int startScore = game.getLogic().getCurrentScore();
+            int startDeaths = game.getDeaths();
+
+            int node = 0;
+            int depth = 0;
+            _path[depth] = node;
+            boolean died = false;
+            int heading = Direction.NONE;
+
+            while (depth < _horizon && !died){
+                int direction = select(tree, node);
+                if (direction == NONE){
+                    direction = expand(tree, node);
+                    if (direction == NONE){
+                        break;
+                    }
+                    died = step(game, direction, startDeaths);
+                    heading = direction;
+                    node = tree.child(node, direction);
+                    _path[++depth] = node;
+                    break;
+                }
+                died = step(game, direction, startDeaths);
+                heading = direction;
+                node = tree.child(node, direction);
+                _path[++depth] = node;
+            }
+
+            int simulated = depth;
+            while (simulated < _horizon && !died){
+                if (heading == Direction.NONE || _random.nextInt(TURN_CHANCE) == 0){
+                    heading = _random.nextInt(Direction.COUNT);
+                }
+                died = step(game, heading, startDeaths);
+                simulated++;
+            }
+
+            double value = evaluate(game.getLogic().getCurrentScore() - startScore, died);
+            for (int i = 0; i <= depth; i++){
+                tree._visits[_path[i]]++;
+                tree._value[_path[i]] += value;
+            }
+        }
+
+        /**
+         * filho de maior UCT, se todos os filhos ja existirem
+         * @return direcao escolhida ou NONE se ainda ha filhos por expandir
+         */
+        private int select(Tree tree, int node){
+            double logVisits = Math.log(Math.max(1, tree._visits[node]));
+            int best = NONE;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int direction = 0; direction < Direction.COUNT; direction++){
+                int child = tree.child(node, direction);
+                if (child == NONE){
+                    return NONE;
+                }
+                int visits = tree._visits[child];
+                double score = tree._value[child] / visits + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (score > bestScore){
+                    bestScore = score;
+                    best = direction;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * cria um filho para uma direcao ainda nao tentada, escolhida ao acaso
+         * @return direcao do filho criado ou NONE se a arvore esta cheia
+         */
+        private int expand(Tree tree, int node){
+            int count = 0;
+            for (int direction = 0; direction < Direction.COUNT; direction++){
+                if (tree.child(node, direction) == NONE){
+                    _untried[count++] = direction;
+                }
+            }
+            int child = tree.newNode();
+            if (child == NONE){
+                return NONE;
+            }
+            int direction = _untried[_random.nextInt(count)];
+            tree._children[node * Direction.COUNT + direction] = child;
+            return direction;
+        }
+
+        /**
+         * avanca o fork um tick com a direcao dada
+         * @return true se o jogador morreu
+         */
+        private boolean step(GameSession game, int direction, int startDeaths){
+            _input.setDirection(direction);
+            game.tick();
+            return game.getDeaths() != startDeaths || game.isGameOver();
+        }
+
+        /**
+         * copia a subarvore do filho escolhido para a arvore reserva, que
+         * passa a ser a arvore da busca; a antiga vira a reserva
+         */
+        private void reroot(int chosen){
+            Tree from = _tree;
+            Tree to = _spare;
+            to._size = 0;
+            int root = from._size > 0 ? from.child(0, chosen) : NONE;
+            if (root == NONE){
+                _tree._size = 0;
+                return;
+            }
+
+            to.newNode();
+            copyNode(from, root, to, 0);
+            int top = 0;
+            _stack[top++] = root;
+            _stack[top++] = 0;
+            while (top > 0){
+                int copy = _stack[--top];
+                int original = _stack[--top];
+                for (int direction = 0; direction < Direction.COUNT; direction++){
+                    int child = from.child(original, direction);
+                    if (child == NONE){
+                        continue;
+                    }
+                    int childCopy = to.newNode();
+                    to._children[copy * Direction.COUNT + direction] = childCopy;
+                    copyNode(from, child, to, childCopy);
+                    _stack[top++] = child;
+                    _stack[top++] = childCopy;
+                }
+            }
+            _tree = to;
+            _spare = from;
+        }
+
+        private void copyNode(Tree from, int node, Tree to, int copy){
+            to._visits[copy] = from._visits[node];
+            to._value[copy] = from._value[node];
+        }
+    }
+
+    private final InputSource _manual;
+    private final ForkJoinPool _pool;
+    private final Worker[] _workers;
+    private final int _horizon;
+
+    private volatile boolean _enabled = true;
+    private GameSession _session;
+
+    private long _budgetNanos = DEFAULT_BUDGET_MILLIS * 1000000L;
+    private long _fixedIterations = 0;
+
+    private final List<Callable<Void>> _tasks;
+    private final long[] _visits = new long[Direction.COUNT];
+
+    private long _expectedTick = -1;
+    private int _chosen = Direction.NONE;
+    private long _decisions = 0;
+    private long _totalIterations = 0;
+
+    /**
+     * Construtor usando todos os nucleos disponiveis, sem fonte manual
+     * @param seed semente das simulacoes aleatorias
+     */
+    public Autopilot(long seed){
+        this(null, seed, Runtime.getRuntime().availableProcessors(), DEFAULT_HORIZON, DEFAULT_TREE_NODES);
+    }
+
+    /**
+     * Construtor
+     * @param manual fonte repassada enquanto o piloto esta desligado, ou null
+     * para ficar parado
+     * @param seed semente das simulacoes aleatorias
+     * @param threads threads de busca, cada uma com sua arvore
+     * @param horizon ticks simulados a frente em cada iteracao
+     * @param treeNodes nos de cada arvore, a busca so simula quando a
+     * arvore enche
+     */
+    public Autopilot(InputSource manual, long seed, int threads, int horizon, int treeNodes){
+        if (threads < 1 || horizon < 1 || treeNodes < 1){
+            throw new IllegalArgumentException("threads, horizon and tree size must be positive");
+        }
+        _manual = manual != null ? manual : InputSource.NONE;
+        _horizon = horizon;
+        _pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        _workers = new Worker[threads];
+        _tasks = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++){
+            _workers[i] = new Worker(treeNodes, BatchSimulator.gameSeed(seed, i));
+            _tasks.add(_workers[i]);
+        }
+    }
+
+    /**
+     * define a sessao dirigida pelo piloto, que deve ter este piloto (ou uma
+     * fonte que o repasse) como fonte de comandos
+     * @param session sessao dirigida
+     */
+    public void attach(GameSession session){
+        _session = session;
+        _expectedTick = -1;
+    }
+
+    /**
+     * define o tempo de busca de cada decisao
+     * @param millis tempo em milissegundos, no minimo 1
+     */
+    public void setBudgetMillis(long millis){
+        _budgetNanos = Math.max(1, millis) * 1000000L;
+        _fixedIterations = 0;
+    }
+
+    /**
+     * troca o tempo de busca por um numero fixo de iteracoes por thread em
+     * cada decisao, o que torna as partidas reproduziveis
+     * @param iterations iteracoes por thread, no minimo 1
+     */
+    public void setIterations(long iterations){
+        _fixedIterations = Math.max(1, iterations);
+    }
+
+    /**
+     * liga ou desliga o piloto, pode ser chamado de qualquer thread
+     * @param enabled true para o piloto jogar, false para repassar a fonte
+     * manual
+     */
+    public void setEnabled(boolean enabled){
+        _enabled = enabled;
+    }
+
+    /**
+     * indica se o piloto esta jogando
+     * @return true se ligado
+     */
+    public boolean isEnabled(){
+        return _enabled;
+    }
+
+    @Override
+    public int nextDirection(){
+        if (!_enabled || _session == null){
+            _expectedTick = -1;
+            return _manual.nextDirection();
+        }
+        discardManual();
+        return decide();
+    }
+
+    /**
+     * consome a fonte manual enquanto o piloto joga, para que ela nao
+     * acumule eventos (a fila do teclado e limitada e descartaria os novos)
+     * e nao guarde curvas pedidas para quando o piloto for desligado
+     */
+    private void discardManual(){
+        int ignored = _manual.nextDirection();
+        if (ignored != Direction.NONE){
+            _manual.moved(ignored);
+        }
+    }
+
+    @Override
+    public void moved(int direction){
+        if (!_enabled){
+            _manual.moved(direction);
+        }
+    }
+
+    /**
+     * busca a partir do estado atual da sessao e escolhe a direcao mais
+     * visitada somando as arvores de todas as threads
+     * @return direcao escolhida
+     */
+    private int decide(){
+        boolean reuse = _expectedTick == _session.getTickCount() && _chosen != Direction.NONE;
+        for (Worker worker : _workers){
+            worker.prepare(_session, reuse, _chosen);
+        }
+
+        if (_pool != null){
+            _pool.invokeAll(_tasks);
+        } else{
+            _workers[0].call();
+        }
+
+        long[] visits = _visits;
+        Arrays.fill(visits, 0);
+        for (Worker worker : _workers){
+            Tree tree = worker._tree;
+            for (int direction = 0; direction < Direction.COUNT; direction++){
+                int child = tree.child(0, direction);
+                if (child != NONE){
+                    visits[direction] += tree._visits[child];
+                }
+            }
+            _totalIterations += worker._iterations;
+        }
+        int best = Direction.NONE;
+        for (int direction = 0; direction < Direction.COUNT; direction++){
+            if (visits[direction] > 0 && (best == Direction.NONE || visits[direction] > visits[best])){
+                best = direction;
+            }
+        }
+
+        _chosen = best;
+        _expectedTick = _session.getTickCount() + 1;
+        _decisions++;
+        return best;
+    }
+
+    /**
+     * valor de uma simulacao entre 0 e 1: morrer vale 0, sobreviver vale
+     * metade e o resto cresce com os pontos feitos, saturando em um pacdot
+     * por tick
+     */
+    private double evaluate(int gained, boolean died){
+        if (died){
+            return 0;
+        }
+        return 0.5 + 0.5 * Math.min(1.0, gained / (10.0 * _horizon));
+    }
+
+    /**
+     * media de iteracoes de busca por decisao, somando as threads
+     * @return iteracoes por decisao
+     */
+    public double getIterationsPerDecision(){
+        return _decisions == 0 ? 0 : (double) _totalIterations / _decisions;
+    }
+
+    /**
+     * encerra as threads de busca
+     */
+    public void shutdown(){
+        if (_pool != null){
+            _pool.shutdown();
+        }
+    }
+
+    /**
+     * joga uma partida no tabuleiro padrao com um piloto, sem interface
+     * @param seed semente da partida
+     * @param autopilot piloto, que e ligado a sessao criada
+     * @param maxTicks limite de ticks
+     * @return resultado da partida
+     */
+    public static SimulationResult play(long seed, Autopilot autopilot, long maxTicks){
+        GameSession session = GameSession.standardGame(seed, autopilot);
+        autopilot.attach(session);
+        while (!session.isGameOver() && session.getTickCount() < maxTicks){
+            session.tick();
+        }
+        return SimulationResult.of(seed, session);
+    }
+
+    /**
+     * joga partidas com o piloto e mostra o resultado de cada uma, para
+     * medir a dificuldade dos fantasmas
+     * uso: Autopilot partidas [iteracoes por decisao] [threads] [semente]
+     * @param args argumentos
+     */
+    public static void main(String[] args){
+        if (args.length < 1 || args.length > 4){
+            System.err.println("usage: Autopilot <games> [iterations per decision] [threads] [seed]");
+            System.exit(2);
+        }
+        int games = Integer.parseInt(args[0]);
+        long iterations = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+
+        long totalScore = 0;
+        for (int i = 0; i < games; i++){
+            long gameSeed = BatchSimulator.gameSeed(seed, i);
+            Autopilot autopilot = new Autopilot(null, gameSeed, threads, DEFAULT_HORIZON, DEFAULT_TREE_NODES);
+            autopilot.setIterations(Math.max(1, iterations / threads));
+            long start = System.nanoTime();
+            SimulationResult result = play(gameSeed, autopilot, 100000);
+            autopilot.shutdown();
+            totalScore += result.getScore();
+            System.out.println(result + " in " + (System.nanoTime() - start) / 1000000 + " ms, "
+                               + Math.round(autopilot.getIterationsPerDecision()) + " iterations per decision");
+        }
+        System.out.println("mean score " + (games == 0 ? 0 : totalScore / games));
+    }
+}
@@ -0,0 +1,117 @@
+package LogicEngine;
+
+/**
+ * estatisticas agregadas de um lote de jogos simulados
+ * @author matheus
+ */
+public class BatchResult {
+    private final SimulationResult[] _results;
+    private final long _elapsedNanos;
+
+    private long _totalScore = 0;
+    private long _totalTicks = 0;
+    private long _totalDeaths = 0;
+    private int _maxScore = 0;
+    private int _maxLevel = 0;
+    private long _totalLevels = 0;
+
+    /**
+     * Construtor
+     * @param results resultado de cada jogo, na ordem das sementes
+     * @param elapsedNanos tempo total de parede gasto no lote
+     */
+    public BatchResult(SimulationResult[] results, long elapsedNanos){
+        _results = results;
+        _elapsedNanos = elapsedNanos;
+
+        for (SimulationResult result : results){
+            _totalScore += result.getScore();
+            _totalTicks += result.getTicks();
+            _totalDeaths += result.getDeaths();
+            _totalLevels += result.getLevelReached();
+            _maxScore = Math.max(_maxScore, result.getScore());
+            _maxLevel = Math.max(_maxLevel, result.getLevelReached());
+        }
+    }
+
+    /**
+     * resultado de um jogo do lote
+     * @param index indice do jogo
+     * @return resultado do jogo
+     */
+    public SimulationResult getResult(int index){
+        return _results[index];
+    }
+
+    /**
+     * quantidade de jogos do lote
+     * @return numero de jogos
+     */
+    public int getGameCount(){
+        return _results.length;
+    }
+
+    /**
+     * score medio dos jogos
+     * @return media dos scores
+     */
+    public double getMeanScore(){
+        return _results.length == 0 ? 0 : (double) _totalScore / _results.length;
+    }
+
+    /**
+     * maior score do lote
+     * @return score maximo
+     */
+    public int getMaxScore(){
+        return _maxScore;
+    }
+
+    /**
+     * level medio alcancado
+     * @return media dos levels alcancados
+     */
+    public double getMeanLevel(){
+        return _results.length == 0 ? 0 : (double) _totalLevels / _results.length;
+    }
+
+    /**
+     * maior level alcancado no lote
+     * @return level maximo
+     */
+    public int getMaxLevel(){
+        return _maxLevel;
+    }
+
+    /**
+     * total de mortes de todos os jogos
+     * @return numero de mortes
+     */
+    public long getTotalDeaths(){
+        return _totalDeaths;
+    }
+
+    /**
+     * total de ticks simulados
+     * @return numero de ticks
+     */
+    public long getTotalTicks(){
+        return _totalTicks;
+    }
+
+    /**
+     * vazao da simulacao
+     * @return ticks simulados por segundo de parede
+     */
+    public double getTicksPerSecond(){
+        return _elapsedNanos == 0 ? 0 : _totalTicks * 1e9 / _elapsedNanos;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("%d games: mean score %.1f (max %d), mean level %.2f (max %d), " +
+                             "%d deaths, %d ticks, %.0f ticks/s",
+                             _results.length, getMeanScore(), _maxScore, getMeanLevel(),
+                             _maxLevel, _totalDeaths, _totalTicks, getTicksPerSecond());
+    }
+}
@@ -0,0 +1,122 @@
+package LogicEngine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * roda lotes de jogos independentes sem interface grafica em paralelo.
+ * Cada jogo tem sua propria GameLogic, tabuleiro, fantasmas e gerador de
+ * numeros aleatorios, e sua semente depende apenas da semente do lote e do
+ * indice do jogo, de forma que o mesmo lote produz sempre o mesmo resultado
+ * independente do numero de threads
+ * @author matheus
+ */
+public class BatchSimulator {
+    private static final int GAMES_PER_TASK = 4;
+
+    private final ForkJoinPool _pool;
+    private final long _maxTicksPerGame;
+
+    /**
+     * Construtor usando todos os nucleos disponiveis
+     * @param maxTicksPerGame limite de ticks de cada jogo
+     */
+    public BatchSimulator(long maxTicksPerGame){
+        this(Runtime.getRuntime().availableProcessors(), maxTicksPerGame);
+    }
+
+    /**
+     * Construtor
+     * @param threads quantidade de threads de trabalho
+     * @param maxTicksPerGame limite de ticks de cada jogo
+     */
+    public BatchSimulator(int threads, long maxTicksPerGame){
+        _pool = new ForkJoinPool(threads);
+        _maxTicksPerGame = maxTicksPerGame;
+    }
+
+    /**
+     * simula um lote de jogos
+     * @param games quantidade de jogos
+     * @param batchSeed semente do lote
+     * @return estatisticas do lote
+     */
+    public BatchResult run(int games, long batchSeed){
+        SimulationResult[] results = new SimulationResult[games];
+
+        long start = System.nanoTime();
+        _pool.invoke(new GameBatchTask(results, batchSeed, _maxTicksPerGame, 0, games));
+        long elapsed = System.nanoTime() - start;
+
+        return new BatchResult(results, elapsed);
+    }
+
+    /**
+     * simula um unico jogo ate o fim ou ate o limite de ticks
+     * @param seed semente do jogo
+     * @param maxTicks limite de ticks
+     * @return resultado do jogo
+     */
+    public static SimulationResult simulate(long seed, long maxTicks){
+        GameSession session = GameSession.standardGame(seed, new RandomInput(~seed));
+        while (!session.isGameOver() && session.getTickCount() < maxTicks){
+            session.tick();
+        }
+        return SimulationResult.of(seed, session);
+    }
+
+    /**
+     * semente do jogo de um indice do lote (mistura SplitMix64)
+     * @param batchSeed semente do lote
+     * @param index indice do jogo
+     * @return semente do jogo
+     */
+    public static long gameSeed(long batchSeed, int index){
+        long z = batchSeed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * encerra as threads do simulador
+     */
+    public void shutdown(){
+        _pool.shutdown();
+    }
+
+    /**
+     * tarefa que divide o intervalo de jogos ate um tamanho pequeno e os
+     * simula, cada jogo escreve apenas em sua posicao do vetor de resultados
+     */
+    private static final class GameBatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SimulationResult[] _results;
+        private final long _batchSeed;
+        private final long _maxTicks;
+        private final int _from;
+        private final int _to;
+
+        GameBatchTask(SimulationResult[] results, long batchSeed, long maxTicks, int from, int to){
+            _results = results;
+            _batchSeed = batchSeed;
+            _maxTicks = maxTicks;
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if (_to - _from <= GAMES_PER_TASK){
+                for (int i = _from; i < _to; i++){
+                    _results[i] = simulate(gameSeed(_batchSeed, i), _maxTicks);
+                }
+                return;
+            }
+            int middle = (_from + _to) >>> 1;
+            invokeAll(new GameBatchTask(_results, _batchSeed, _maxTicks, _from, middle),
+                      new GameBatchTask(_results, _batchSeed, _maxTicks, middle, _to));
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package LogicEngine;
+
+import SystemElements.Board;
+
+import java.util.Collection;
+
+/**
+ * camadas do tabuleiro em bitsets compactos (paredes, pacdots e pilulas),
+ * indexadas por casa em ordem de linha (x * largura + y). A camada de paredes
+ * nunca muda durante o level, as de pacdots e pilulas sao o estado mutavel do
+ * tabuleiro, de forma que o Board original nunca e alterado e copiar o estado
+ * e apenas copiar alguns vetores de long. share cria uma copia preguicosa: os
+ * vetores ficam compartilhados ate que uma das copias escreva em um deles,
+ * quando so esse vetor e copiado; restore volta camadas existentes ao
+ * conteudo de outras sem alocar
+ * @author matheus
+ */
+public class BoardLayers {
+    private static final char PACDOT = '.';
+    private static final char EMPTY = ' ';
+
+    private final int _height;
+    private final int _width;
+
+    private long[] _walls;
+    private long[] _pacdots;
+    private long[] _pills;
+
+    private boolean _wallsShared = false;
+    private boolean _pacdotsShared = false;
+    private boolean _pillsShared = false;
+
+    private final char[][] _wallSymbols;
+
+    private int _wallVersion = 0;
+
+    /**
+     * Construtor de camadas vazias
+     * @param height numero de linhas
+     * @param width numero de colunas
+     */
+    public BoardLayers(int height, int width){
+        this(height, width, new long[words(height * width)], new long[words(height * width)],
+             new long[words(height * width)], null);
+    }
+
+    /**
+     * Construtor a partir de vetores de bits ja montados, usado pelo
+     * carregador de levels
+     * @param height numero de linhas
+     * @param width numero de colunas
+     * @param walls bits das paredes
+     * @param pacdots bits dos pacdots
+     * @param pills bits das pilulas
+     * @param wallSymbols simbolos das paredes, ou null para usar '■'
+     */
+    BoardLayers(int height, int width, long[] walls, long[] pacdots, long[] pills, char[][] wallSymbols){
+        _height = height;
+        _width = width;
+        _walls = walls;
+        _pacdots = pacdots;
+        _pills = pills;
+        _wallSymbols = wallSymbols;
+    }
+
+    /**
+     * monta as camadas a partir do layout de um tabuleiro, sem guardar
+     * referencia ao vetor mutavel do tabuleiro
+     * @param board tabuleiro de origem
+     * @return camadas do tabuleiro
+     */
+    public static BoardLayers fromBoard(Board board){
+        int height = board.getHeight();
+        int width = board.getWidth();
+        Collection<Character> invalidSpaceSymbols = board.getInvalidSpaceSymbols();
+
+        char[][] wallSymbols = new char[height][];
+        BoardLayers layers = new BoardLayers(height, width, new long[words(height * width)],
+                                             new long[words(height * width)],
+                                             new long[words(height * width)], wallSymbols);
+
+        for (int i = 0; i < height; i++){
+            wallSymbols[i] = new char[width];
+            for (int j = 0; j < width; j++){
+                char symbol = board.getElementAt(i, j);
+                if (invalidSpaceSymbols.contains(symbol)){
+                    layers.setWall(i, j, true);
+                    wallSymbols[i][j] = symbol;
+                } else if (symbol == PACDOT){
+                    layers.setPacdot(i, j, true);
+                }
+            }
+        }
+        return layers;
+    }
+
+    /**
+     * copia as camadas, os vetores de bits sao copiados e os simbolos das
+     * paredes (imutaveis) compartilhados
+     * @return copia independente das camadas
+     */
+    public BoardLayers copy(){
+        return new BoardLayers(_height, _width, _walls.clone(), _pacdots.clone(), _pills.clone(), _wallSymbols);
+    }
+
+    /**
+     * copia as camadas sem copiar nenhum vetor: as duas instancias passam a
+     * compartilhar os vetores de bits e cada uma copia o seu antes da
+     * primeira escrita. Feito para os forks da GameLogic, que quase sempre
+     * so mudam alguns pacdots
+     * @return copia independente das camadas, com custo constante
+     */
+    public BoardLayers share(){
+        BoardLayers shared = new BoardLayers(_height, _width, _walls, _pacdots, _pills, _wallSymbols);
+        shared._wallVersion = _wallVersion;
+        shared._wallsShared = _wallsShared = true;
+        shared._pacdotsShared = _pacdotsShared = true;
+        shared._pillsShared = _pillsShared = true;
+        return shared;
+    }
+
+    /**
+     * indica se as camadas dadas sao do mesmo tabuleiro que estas (mesmas
+     * dimensoes e simbolos de parede), ou seja se podem ser copiadas por
+     * restore
+     * @param other outras camadas
+     * @return true se restore(other) e possivel
+     */
+    public boolean sameBoard(BoardLayers other){
+        return _height == other._height && _width == other._width && _wallSymbols == other._wallSymbols;
+    }
+
+    /**
+     * volta estas camadas ao conteudo de outras do mesmo tabuleiro: as
+     * paredes, que quase nunca mudam, passam a ser compartilhadas como em
+     * share, e os pacdots e as pilulas sao copiados para os vetores destas
+     * camadas, que so sao alocados se ainda forem compartilhados. Feito para
+     * quem volta o mesmo jogo ao mesmo ponto muitas vezes, sem alocar
+     * @param source camadas copiadas, que nao mudam
+     */
+    public void restore(BoardLayers source){
+        if (source == this){
+            return;
+        }
+        if (!sameBoard(source)){
+            throw new IllegalArgumentException("layers of a different board");
+        }
+        if (_walls != source._walls){
+            _walls = source._walls;
+            _wallsShared = source._wallsShared = true;
+        }
+        _pacdots = copyInto(source._pacdots, _pacdots, _pacdotsShared);
+        _pacdotsShared = false;
+        _pills = copyInto(source._pills, _pills, _pillsShared);
+        _pillsShared = false;
+        _wallVersion = source._wallVersion;
+    }
+
+    private static long[] copyInto(long[] source, long[] target, boolean targetShared){
+        if (targetShared){
+            return source.clone();
+        }
+        System.arraycopy(source, 0, target, 0, source.length);
+        return target;
+    }
+
+    /**
+     * quantidade de longs necessaria para guardar um bit por casa
+     * @param cells numero de casas
+     * @return tamanho de cada vetor de bits
+     */
+    static int words(int cells){
+        return (cells + 63) >>> 6;
+    }
+
+    private static boolean get(long[] bits, int cell){
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    private static void set(long[] bits, int cell, boolean value){
+        if (value){
+            bits[cell >>> 6] |= 1L << cell;
+        } else{
+            bits[cell >>> 6] &= ~(1L << cell);
+        }
+    }
+
+    private static int count(long[] bits){
+        int total = 0;
+        for (long word : bits){
+            total += Long.bitCount(word);
+        }
+        return total;
+    }
+
+    private static boolean any(long[] bits){
+        for (long word : bits){
+            if (word != 0){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * vetor de bits das paredes, compartilhado, usado na serializacao
+     * @return bits das paredes
+     */
+    long[] wallBits(){
+        return _walls;
+    }
+
+    /**
+     * vetor de bits dos pacdots, compartilhado, usado na serializacao
+     * @return bits dos pacdots
+     */
+    long[] pacdotBits(){
+        return _pacdots;
+    }
+
+    /**
+     * vetor de bits das pilulas, compartilhado, usado na serializacao
+     * @return bits das pilulas
+     */
+    long[] pillBits(){
+        return _pills;
+    }
+
+    /**
+     * indice da casa nos bitsets
+     * @param x linha
+     * @param y coluna
+     * @return indice em ordem de linha
+     */
+    public int cellIndex(int x, int y){
+        return x * _width + y;
+    }
+
+    /**
+     * getter para o numero de linhas
+     * @return numero de linhas
+     */
+    public int getHeight(){
+        return _height;
+    }
+
+    /**
+     * getter para o numero de colunas
+     * @return numero de colunas
+     */
+    public int getWidth(){
+        return _width;
+    }
+
+    /**
+     * indica se a casa e uma parede ou esta fora do tabuleiro
+     * @param x linha
+     * @param y coluna
+     * @return true se nao for possivel andar na casa
+     */
+    public boolean isWall(int x, int y){
+        if (x < 0 || y < 0 || x >= _height || y >= _width){
+            return true;
+        }
+        return get(_walls, cellIndex(x, y));
+    }
+
+    /**
+     * indica se e possivel andar na casa
+     * @param x linha
+     * @param y coluna
+     * @return true se a casa esta no tabuleiro e nao e parede
+     */
+    public boolean isWalkable(int x, int y){
+        return !isWall(x, y);
+    }
+
+    /**
+     * marca ou desmarca a casa como parede
+     * @param x linha
+     * @param y coluna
+     * @param wall true para parede
+     */
+    public void setWall(int x, int y, boolean wall){
+        if (_wallsShared){
+            _walls = _walls.clone();
+            _wallsShared = false;
+        }
+        set(_walls, cellIndex(x, y), wall);
+        _wallVersion++;
+    }
+
+    /**
+     * contador de alteracoes da camada de paredes, permite que quem guarda
+     * calculos sobre as casas validas saiba quando descarta-los
+     * @return numero de chamadas a setWall nestas camadas
+     */
+    public int getWallVersion(){
+        return _wallVersion;
+    }
+
+    /**
+     * indica se a casa tem um pacdot
+     * @param x linha
+     * @param y coluna
+     * @return true se houver um pacdot
+     */
+    public boolean hasPacdot(int x, int y){
+        return get(_pacdots, cellIndex(x, y));
+    }
+
+    /**
+     * coloca ou remove um pacdot da casa
+     * @param x linha
+     * @param y coluna
+     * @param pacdot true para colocar
+     */
+    public void setPacdot(int x, int y, boolean pacdot){
+        ownPacdots();
+        set(_pacdots, cellIndex(x, y), pacdot);
+    }
+
+    /**
+     * come o pacdot da casa, se houver
+     * @param x linha
+     * @param y coluna
+     * @return true se havia um pacdot na casa
+     */
+    public boolean eatPacdot(int x, int y){
+        int cell = cellIndex(x, y);
+        long mask = 1L << cell;
+        long word = _pacdots[cell >>> 6];
+        if ((word & mask) == 0){
+            return false;
+        }
+        ownPacdots();
+        _pacdots[cell >>> 6] = word & ~mask;
+        return true;
+    }
+
+    private void ownPacdots(){
+        if (_pacdotsShared){
+            _pacdots = _pacdots.clone();
+            _pacdotsShared = false;
+        }
+    }
+
+    /**
+     * quantidade de pacdots restantes
+     * @return numero de pacdots
+     */
+    public int pacdotCount(){
+        return count(_pacdots);
+    }
+
+    /**
+     * indica se ainda restam pacdots, checando palavra a palavra
+     * @return true se algum pacdot nao foi comido
+     */
+    public boolean hasPacdots(){
+        return any(_pacdots);
+    }
+
+    /**
+     * quantidade de pilulas restantes
+     * @return numero de pilulas
+     */
+    public int pillCount(){
+        return count(_pills);
+    }
+
+    /**
+     * indica se a casa tem uma pilula viva
+     * @param x linha
+     * @param y coluna
+     * @return true se houver uma pilula
+     */
+    public boolean hasPill(int x, int y){
+        return get(_pills, cellIndex(x, y));
+    }
+
+    /**
+     * coloca ou remove uma pilula da casa
+     * @param x linha
+     * @param y coluna
+     * @param pill true para colocar
+     */
+    public void setPill(int x, int y, boolean pill){
+        if (_pillsShared){
+            _pills = _pills.clone();
+            _pillsShared = false;
+        }
+        set(_pills, cellIndex(x, y), pill);
+    }
+
+    /**
+     * simbolo base da casa (sem entidades): o simbolo original da parede,
+     * '.' para pacdots ou espaco para casas vazias
+     * @param x linha
+     * @param y coluna
+     * @return simbolo da casa
+     */
+    public char symbolAt(int x, int y){
+        int cell = cellIndex(x, y);
+        if (get(_walls, cell)){
+            return _wallSymbols != null ? _wallSymbols[x][y] : '■';
+        }
+        return get(_pacdots, cell) ? PACDOT : EMPTY;
+    }
+}
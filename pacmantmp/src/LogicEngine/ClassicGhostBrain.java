@@ -0,0 +1,127 @@
+package LogicEngine;
+
+import SystemElements.Entity;
+import SystemElements.Ghost;
+
+/**
+ * personalidades dos fantasmas do jogo original. Na dispersao cada um vai
+ * para um canto do tabuleiro; na perseguicao Blinky mira o jogador, Pinky
+ * mira 4 casas a frente dele, Inky mira o dobro do vetor de Blinky ate 2
+ * casas a frente do jogador e Clyde persegue de longe mas foge para seu
+ * canto quando chega a menos de 8 casas
+ * @author matheus
+ */
+public enum ClassicGhostBrain implements GhostBrain {
+    BLINKY {
+        @Override
+        public long chaseTarget(GameLogic logic, int slot){
+            return playerTarget(logic, 0);
+        }
+
+        @Override
+        public long scatterTarget(GameLogic logic, int slot){
+            return GhostBrain.target(0, logic.getWidth() - 1);
+        }
+    },
+
+    PINKY {
+        @Override
+        public long chaseTarget(GameLogic logic, int slot){
+            return playerTarget(logic, 4);
+        }
+
+        @Override
+        public long scatterTarget(GameLogic logic, int slot){
+            return GhostBrain.target(0, 0);
+        }
+    },
+
+    INKY {
+        @Override
+        public long chaseTarget(GameLogic logic, int slot){
+            long pivot = playerTarget(logic, 2);
+            int blinky = logic.findGhost("Blinky");
+            if (blinky < 0){
+                return pivot;
+            }
+            return GhostBrain.target(2 * GhostBrain.targetX(pivot) - logic.enemyX(blinky),
+                                     2 * GhostBrain.targetY(pivot) - logic.enemyY(blinky));
+        }
+
+        @Override
+        public long scatterTarget(GameLogic logic, int slot){
+            return GhostBrain.target(logic.getHeight() - 1, logic.getWidth() - 1);
+        }
+    },
+
+    CLYDE {
+        @Override
+        public long chaseTarget(GameLogic logic, int slot){
+            Entity player = logic.entityAt(0);
+            int dx = logic.enemyX(slot) - player.getPosX();
+            int dy = logic.enemyY(slot) - player.getPosY();
+            if (dx * dx + dy * dy < SHY_DISTANCE * SHY_DISTANCE){
+                return scatterTarget(logic, slot);
+            }
+            return playerTarget(logic, 0);
+        }
+
+        @Override
+        public long scatterTarget(GameLogic logic, int slot){
+            return GhostBrain.target(logic.getHeight() - 1, 0);
+        }
+    },
+
+    /**
+     * vaga ao acaso em todos os modos, usado por fantasmas que nao seguem o
+     * jogador
+     */
+    WANDERER {
+        @Override
+        public long chaseTarget(GameLogic logic, int slot){
+            return NO_TARGET;
+        }
+
+        @Override
+        public long scatterTarget(GameLogic logic, int slot){
+            return NO_TARGET;
+        }
+    };
+
+    /**
+     * distancia em casas abaixo da qual Clyde desiste de perseguir
+     */
+    private static final int SHY_DISTANCE = 8;
+
+    /**
+     * casa algumas casas a frente do jogador, na direcao do seu ultimo passo
+     * @param logic logica do jogo
+     * @param ahead quantas casas a frente
+     * @return alvo empacotado
+     */
+    private static long playerTarget(GameLogic logic, int ahead){
+        Entity player = logic.entityAt(0);
+        int direction = logic.getPlayerDirection();
+        if (direction == Direction.NONE || ahead == 0){
+            return GhostBrain.target(player.getPosX(), player.getPosY());
+        }
+        return GhostBrain.target(player.getPosX() + Direction.DX[direction] * ahead,
+                                 player.getPosY() + Direction.DY[direction] * ahead);
+    }
+
+    /**
+     * estrategia classica de um fantasma pelo seu nome; fantasmas com outros
+     * nomes perseguem como Blinky se seguirem o jogador e vagam caso
+     * contrario
+     * @param ghost fantasma
+     * @return estrategia do fantasma
+     */
+    public static GhostBrain forGhost(Ghost ghost){
+        for (ClassicGhostBrain brain : values()){
+            if (brain != WANDERER && brain.name().equalsIgnoreCase(ghost.getName())){
+                return brain;
+            }
+        }
+        return ghost.followsPlayer() ? BLINKY : WANDERER;
+    }
+}
@@ -0,0 +1,41 @@
+package LogicEngine;
+
+/**
+ * codigos primitivos das direcoes de movimento no tabuleiro
+ * (x representa a linha e y a coluna, como em Position)
+ * @author matheus
+ */
+public final class Direction {
+    public static final int NONE = -1;
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+
+    public static final int COUNT = 4;
+
+    /**
+     * deslocamento na linha (x) para cada direcao
+     */
+    public static final int[] DX = {-1, 1, 0, 0};
+
+    /**
+     * deslocamento na coluna (y) para cada direcao
+     */
+    public static final int[] DY = {0, 0, -1, 1};
+
+    private Direction(){
+    }
+
+    /**
+     * indica a direcao oposta a passada
+     * @param direction direcao original
+     * @return direcao oposta ou NONE caso a original seja NONE
+     */
+    public static int opposite(int direction){
+        if (direction == NONE){
+            return NONE;
+        }
+        return direction ^ 1;
+    }
+}
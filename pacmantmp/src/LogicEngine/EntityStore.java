@@ -0,0 +1,215 @@
+package LogicEngine;
+
+import java.util.Arrays;
+
+/**
+ * estado dos inimigos em vetores paralelos de primitivos, um indice (slot)
+ * por inimigo na mesma ordem da lista de inimigos da GameLogic: posicao,
+ * direcao do ultimo passo, simbolo, se e um fantasma e sua estrategia. A
+ * movimentacao dos fantasmas le e escreve so estes vetores, sem percorrer
+ * objetos nem alocar; os objetos Entity da lista de inimigos viram apenas
+ * uma visao da posicao guardada aqui, atualizada a cada movimento
+ * @author matheus
+ */
+public class EntityStore {
+    private int _size = 0;
+
+    private int[] _x;
+    private int[] _y;
+    private int[] _heading;
+    private char[] _symbol;
+    private boolean[] _ghost;
+    private GhostBrain[] _brain;
+
+    /**
+     * Construtor
+     * @param capacity quantidade inicial de inimigos suportada, cresce se
+     * necessario
+     */
+    public EntityStore(int capacity){
+        capacity = Math.max(capacity, 4);
+        _x = new int[capacity];
+        _y = new int[capacity];
+        _heading = new int[capacity];
+        _symbol = new char[capacity];
+        _ghost = new boolean[capacity];
+        _brain = new GhostBrain[capacity];
+    }
+
+    /**
+     * quantidade de inimigos guardados
+     * @return numero de inimigos
+     */
+    public int size(){
+        return _size;
+    }
+
+    /**
+     * acrescenta um inimigo no fim, sem direcao
+     * @param x linha inicial
+     * @param y coluna inicial
+     * @param symbol simbolo do inimigo no estagio
+     * @param ghost true se o inimigo for um fantasma, que se move sozinho
+     * @param brain estrategia do fantasma
+     * @return indice do novo inimigo
+     */
+    public int add(int x, int y, char symbol, boolean ghost, GhostBrain brain){
+        if (_size == _x.length){
+            grow(_size * 2);
+        }
+        int slot = _size++;
+        _x[slot] = x;
+        _y[slot] = y;
+        _heading[slot] = Direction.NONE;
+        _symbol[slot] = symbol;
+        _ghost[slot] = ghost;
+        _brain[slot] = brain;
+        return slot;
+    }
+
+    /**
+     * remove um inimigo, os seguintes descem um indice
+     * @param slot indice do inimigo
+     */
+    public void remove(int slot){
+        int moved = _size - slot - 1;
+        System.arraycopy(_x, slot + 1, _x, slot, moved);
+        System.arraycopy(_y, slot + 1, _y, slot, moved);
+        System.arraycopy(_heading, slot + 1, _heading, slot, moved);
+        System.arraycopy(_symbol, slot + 1, _symbol, slot, moved);
+        System.arraycopy(_ghost, slot + 1, _ghost, slot, moved);
+        System.arraycopy(_brain, slot + 1, _brain, slot, moved);
+        _size--;
+        _brain[_size] = null;
+    }
+
+    /**
+     * copia o estado de todos os inimigos, as estrategias sao compartilhadas
+     * @return copia independente
+     */
+    public EntityStore copy(){
+        EntityStore copy = new EntityStore(_size);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * troca o estado deste store pelo de outro, sem alocar se os inimigos
+     * couberem nos vetores deste
+     * @param source store copiado, as estrategias sao compartilhadas
+     */
+    public void copyFrom(EntityStore source){
+        if (_x.length < source._size){
+            grow(source._size);
+        }
+        System.arraycopy(source._x, 0, _x, 0, source._size);
+        System.arraycopy(source._y, 0, _y, 0, source._size);
+        System.arraycopy(source._heading, 0, _heading, 0, source._size);
+        System.arraycopy(source._symbol, 0, _symbol, 0, source._size);
+        System.arraycopy(source._ghost, 0, _ghost, 0, source._size);
+        System.arraycopy(source._brain, 0, _brain, 0, source._size);
+        if (_size > source._size){
+            Arrays.fill(_brain, source._size, _size, null);
+        }
+        _size = source._size;
+    }
+
+    private void grow(int capacity){
+        _x = Arrays.copyOf(_x, capacity);
+        _y = Arrays.copyOf(_y, capacity);
+        _heading = Arrays.copyOf(_heading, capacity);
+        _symbol = Arrays.copyOf(_symbol, capacity);
+        _ghost = Arrays.copyOf(_ghost, capacity);
+        _brain = Arrays.copyOf(_brain, capacity);
+    }
+
+    /**
+     * linha de um inimigo
+     * @param slot indice do inimigo
+     * @return linha
+     */
+    public int x(int slot){
+        return _x[slot];
+    }
+
+    /**
+     * coluna de um inimigo
+     * @param slot indice do inimigo
+     * @return coluna
+     */
+    public int y(int slot){
+        return _y[slot];
+    }
+
+    /**
+     * muda a posicao de um inimigo
+     * @param slot indice do inimigo
+     * @param x nova linha
+     * @param y nova coluna
+     */
+    public void setPosition(int slot, int x, int y){
+        _x[slot] = x;
+        _y[slot] = y;
+    }
+
+    /**
+     * direcao do ultimo passo de um inimigo
+     * @param slot indice do inimigo
+     * @return codigo de Direction, ou Direction.NONE
+     */
+    public int heading(int slot){
+        return _heading[slot];
+    }
+
+    /**
+     * define a direcao do ultimo passo de um inimigo
+     * @param slot indice do inimigo
+     * @param direction codigo de Direction
+     */
+    public void setHeading(int slot, int direction){
+        _heading[slot] = direction;
+    }
+
+    /**
+     * esquece a direcao de todos os inimigos, como quando voltam ao inicio
+     */
+    public void clearHeadings(){
+        Arrays.fill(_heading, 0, _size, Direction.NONE);
+    }
+
+    /**
+     * simbolo de um inimigo no estagio
+     * @param slot indice do inimigo
+     * @return inicial do nome para fantasmas, 'E' para os demais
+     */
+    public char symbol(int slot){
+        return _symbol[slot];
+    }
+
+    /**
+     * indica se um inimigo e um fantasma
+     * @param slot indice do inimigo
+     * @return true se ele se move sozinho
+     */
+    public boolean isGhost(int slot){
+        return _ghost[slot];
+    }
+
+    /**
+     * estrategia de um fantasma
+     * @param slot indice do inimigo
+     * @return estrategia
+     */
+    public GhostBrain brain(int slot){
+        return _brain[slot];
+    }
+
+    /**
+     * troca a estrategia de um fantasma
+     * @param slot indice do inimigo
+     * @param brain nova estrategia
+     */
+    public void setBrain(int slot, GhostBrain brain){
+        _brain[slot] = brain;
+    }
+}
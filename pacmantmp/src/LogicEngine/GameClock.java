@@ -0,0 +1,20 @@
+package LogicEngine;
+
+/**
+ * fonte de tempo usada pela sessao de jogo, permite trocar o relogio do
+ * sistema por um relogio controlado (simulacoes e testes)
+ * @author matheus
+ */
+public interface GameClock {
+
+    /**
+     * relogio do sistema
+     */
+    GameClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * tempo atual
+     * @return tempo atual em milissegundos
+     */
+    long currentTimeMillis();
+}
@@ -1,8 +1,6 @@
 package LogicEngine;
 
-import MyUtils.Pathfind;
 import MyUtils.Position;
-import MyUtils.Utils;
 
 import SystemElements.Ghost;
 import SystemElements.Pacman;
@@ -13,46 +11,103 @@ import SystemElements.Fruit;
 import SystemElements.Pill;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
-import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
- * classe para tratar da lógica da movimentação dos elementos
+ * classe para tratar da lógica da movimentação dos elementos. fork cria uma
+ * copia independente do jogo em microssegundos para buscas a frente e
+ * perguntas do tipo "e se": as camadas do tabuleiro e as pilulas ficam
+ * compartilhadas ate a primeira escrita e o resto do estado sao vetores de
+ * primitivos; restore volta a um estado guardado por fork
  * @author matheus
  */
 public class GameLogic {
+    private static final int METRIC_EUCLIDEAN = 0;
+    private static final int METRIC_NAVIGATION = 1;
+    private static final int METRIC_PATHFINDING = 2;
     
-    private Board _board;
+    /**
+     * a partir de quantos fantasmas as intencoes de movimento sao calculadas
+     * em paralelo, caso nenhum limite seja definido
+     */
+    public static final int DEFAULT_PARALLEL_GHOSTS = 256;
+    
+    /**
+     * fantasmas por tarefa no calculo paralelo das intencoes
+     */
+    private static final int GHOST_BATCH = 64;
+    
+    /**
+     * ultima busca de findGhost, guardada em um unico objeto imutavel para
+     * que possa ser trocada por varias threads ao mesmo tempo sem misturar
+     * nome e indice de buscas diferentes
+     */
+    private static final class FoundGhost {
+        final String _name;
+        final int _slot;
+        
+        FoundGhost(String name, int slot){
+            _name = name;
+            _slot = slot;
+        }
+    }
+    
+    private Level _level;
     private int _score = 0;
     
-    private int _totalPacdots = 0;
     private int _pacdotsConsumed = 0;
     
     private int _consumedGhostReward = 200;
     
+    private int _ghostsEaten = 0;
+    
     private int _fruitsSpawned = 0;
     
     private boolean _gotExtraLife = false;
     
-    private boolean[][] _validityPosMap;
+    private BoardLayers _layers;
+    private NavigationTable _navigation;
+    private PathfindingService _pathfinding;
+    private int _pathfindingBudget = PathfindingService.DEFAULT_BUDGET;
+    private PositionGrid _positions;
+    private OccupancyIndex _occupancy;
+    private int _playerLastCell = OccupancyIndex.NONE;
+    
+    private GameRandom _random;
     
     private final Pacman _player;
     private List<Entity> _enemies;
+    private boolean _enemiesBorrowed = false;
+    private boolean _enemiesLent = false;
+    private EntityStore _store = new EntityStore(8);
+    private FoundGhost _foundGhost;
+    private int[] _ghostIntent = new int[8];
+    private long _ghostSeed;
+    private int _parallelGhosts = DEFAULT_PARALLEL_GHOSTS;
+    
+    private GhostModeSchedule _ghostModes = new GhostModeSchedule();
+    private int _lastGhostMode = GhostModeSchedule.SCATTER;
+    private int _playerDirection = Direction.NONE;
     
     private List<Consumable> _consumables;
     private boolean _playerHit = false;
     
     private Fruit _levelFruit;
     
-    private final Position PLAYERSTARTPOSITION = new Position(17, 9);
-    private final Position GHOSTSTARTPOSITION = new Position(7, 7);
+    private Position _playerStartPosition;
+    private Position _ghostStartPosition;
     
     private List<Pill> _pills;
+    private boolean _pillsShared = false;
+    private List<Pill> _sparePills;
+    private final Pill _powerUp = new Pill(0);
     
-    private final Collection<Character> _invalidSpaceSymbols;
+    private final List<StageListener> _stageListeners = new ArrayList<>();
 
     /**
      * Construtor
@@ -60,55 +115,373 @@ public class GameLogic {
      * @param player jogador
      */
     public GameLogic(Board baseBoard, Pacman player){
-        _board = baseBoard;
+        this(Level.fromBoard("board", baseBoard), player, new GameRandom(new Random().nextLong()));
+    }
+    
+    /**
+     * Construtor para jogos reproduziveis, toda a aleatoriedade do jogo
+     * (movimento dos fantasmas e posicao das frutas) vem da semente passada
+     * @param baseBoard tabuleiro base onde residam as entidades
+     * @param player jogador
+     * @param seed semente do gerador de numeros aleatorios
+     */
+    public GameLogic(Board baseBoard, Pacman player, long seed){
+        this(Level.fromBoard("board", baseBoard), player, new GameRandom(seed));
+    }
+    
+    /**
+     * Construtor a partir de um level
+     * @param level level inicial
+     * @param player jogador
+     * @param seed semente do gerador de numeros aleatorios
+     */
+    public GameLogic(Level level, Pacman player, long seed){
+        this(level, player, new GameRandom(seed));
+    }
+    
+    private GameLogic(Level level, Pacman player, GameRandom random){
+        _random = random;
         _enemies = new ArrayList();
         _consumables = new ArrayList();
-        _pills = new ArrayList<Pill>();
         
-        _invalidSpaceSymbols = _board.getInvalidSpaceSymbols();
+        loadLevel(level);
         
-        initValidPositionsStage();
+        resetLevelCounters();
         
-        initPills();
+        _player = player;
+        _player.setPos(_playerStartPosition);
+    }
+    
+    /**
+     * Construtor dos forks
+     * @param source jogo copiado
+     * @param player novo jogador, que recebe o estado do jogador copiado
+     */
+    private GameLogic(GameLogic source, Pacman player){
+        _player = player;
+        copyState(source);
+    }
+    
+    /**
+     * copia todo o estado do jogo em um jogo novo e independente, com seu
+     * proprio jogador e sem ouvintes do estagio. O fork continua a mesma
+     * sequencia aleatoria, entao recebendo os mesmos comandos joga
+     * exatamente como o original jogaria. Custa poucos microssegundos e nao
+     * depende do tamanho do tabuleiro: as camadas do tabuleiro, as pilulas,
+     * a busca de caminhos e o indice de ocupacao sao compartilhados e so
+     * copiados quando uma das partes muda, os objetos dos inimigos sao
+     * emprestados (ver borrowEnemies) e o resto sao vetores de primitivos do
+     * tamanho do numero de inimigos
+     * @return copia do jogo
+     */
+    public GameLogic fork(){
+        return new GameLogic(this, new Pacman());
+    }
+    
+    /**
+     * recomeca a sequencia aleatoria do jogo (fruta e fantasmas) com uma
+     * semente nova, como se o jogo tivesse sido criado com ela; junto com
+     * restore permite jogar um novo episodio a partir de um jogo guardado
+     * @param seed semente do gerador de numeros aleatorios
+     */
+    public void reseed(long seed){
+        _random.setSeed(seed);
+    }
+    
+    /**
+     * volta ao estado de um jogo guardado por fork, mantendo o jogador e os
+     * ouvintes deste jogo; o jogo guardado nao muda e pode ser restaurado de
+     * novo. Os ouvintes recebem stageReset. Se os dois jogos estao no mesmo
+     * tabuleiro o estado e copiado para os objetos deste jogo, sem alocar,
+     * o que permite voltar ao mesmo ponto a cada simulacao de uma busca
+     * @param saved jogo guardado
+     */
+    public void restore(GameLogic saved){
+        if (saved == this){
+            return;
+        }
+        copyState(saved);
+        fireStageReset();
+    }
+    
+    /**
+     * copia o estado de outro jogo para este, compartilhando o que for
+     * imutavel ou copiado na escrita; no construtor dos forks cria os
+     * objetos, num restore no mesmo tabuleiro copia para os que ja existem
+     * @param source jogo copiado
+     */
+    private void copyState(GameLogic source){
+        _level = source._level;
+        _score = source._score;
+        _pacdotsConsumed = source._pacdotsConsumed;
+        _consumedGhostReward = source._consumedGhostReward;
+        _ghostsEaten = source._ghostsEaten;
+        _fruitsSpawned = source._fruitsSpawned;
+        _gotExtraLife = source._gotExtraLife;
         
-        for (char[] line : _board.getBaseBoard()){
-            for (char symbol : line){
-                if (symbol == '.'){
-                    _totalPacdots++;
-                }
+        if (_layers != null && _layers.sameBoard(source._layers)){
+            _layers.restore(source._layers);
+            _occupancy.restore(source._occupancy);
+            if (_pathfinding != null && source._pathfinding != null){
+                _pathfinding.restore(source._pathfinding);
+            } else{
+                _pathfinding = source._pathfinding != null ? source._pathfinding.copy(_layers) : null;
             }
+        } else{
+            _layers = source._layers.share();
+            _occupancy = source._occupancy.copy();
+            _pathfinding = source._pathfinding != null ? source._pathfinding.copy(_layers) : null;
         }
+        _navigation = source._navigation;
+        _pathfindingBudget = source._pathfindingBudget;
+        _positions = source._positions;
+        _playerLastCell = source._playerLastCell;
+        _playerStartPosition = source._playerStartPosition;
+        _ghostStartPosition = source._ghostStartPosition;
         
-        _player = player;
-        _player.setPos(PLAYERSTARTPOSITION);
+        if (_random != null){
+            _random.copyFrom(source._random);
+        } else{
+            _random = source._random.copy();
+        }
+        _store.copyFrom(source._store);
+        _foundGhost = source._foundGhost;
+        _ghostSeed = source._ghostSeed;
+        _parallelGhosts = source._parallelGhosts;
+        _ghostModes.copyFrom(source._ghostModes);
+        _lastGhostMode = source._lastGhostMode;
+        _playerDirection = source._playerDirection;
+        _playerHit = source._playerHit;
+        
+        if (_consumables != null){
+            _consumables.clear();
+            for (int i = 0; i < source._consumables.size(); i++){
+                _consumables.add(source._consumables.get(i));
+            }
+        } else{
+            _consumables = new ArrayList<>(source._consumables);
+        }
+        if (_pills != null && !_pillsShared){
+            _sparePills = _pills;
+        }
+        _pills = source._pills;
+        _pillsShared = source._pillsShared = true;
+        copyLevelFruit(source._levelFruit);
+        
+        borrowEnemies(source);
+        copyPlayer(source._player);
+    }
+    
+    /**
+     * copia a fruta do level, reaproveitando a deste jogo se ela valer o
+     * mesmo
+     */
+    private void copyLevelFruit(Fruit source){
+        if (source == null){
+            _levelFruit = null;
+            return;
+        }
+        if (_levelFruit == null || _levelFruit.getReward() != source.getReward()){
+            _levelFruit = new Fruit(source.getReward());
+        }
+        copyEntity(source, _levelFruit);
+    }
+    
+    private static void copyEntity(Entity source, Entity target){
+        if (source.getPos() != null){
+            target.setPos(source.getPos());
+        }
+        if (source.isAlive()){
+            target.live();
+        } else{
+            target.die();
+        }
+    }
+    
+    /**
+     * usa a lista de inimigos do jogo copiado sem copiar nenhum objeto: a
+     * logica so le dos inimigos o nome, e as posicoes vem do EntityStore.
+     * Os objetos continuam sendo do jogo que os criou, o unico que escreve
+     * neles, e so sao trocados por objetos proprios (ownEnemies) se alguem
+     * pedir um inimigo a este jogo ou mudar a lista
+     * @param source jogo copiado
+     */
+    private void borrowEnemies(GameLogic source){
+        if (_enemies == source._enemies && !_enemiesBorrowed){
+            for (int i = 0; i < _enemies.size(); i++){
+                _enemies.get(i).setPos(_positions.at(_store.x(i), _store.y(i)));
+            }
+            return;
+        }
+        _enemies = source._enemies;
+        _enemiesBorrowed = true;
+        source._enemiesLent = true;
+    }
+    
+    /**
+     * troca os inimigos emprestados por objetos proprios, nas posicoes deste
+     * jogo, antes de entrega-los a quem chama
+     */
+    private void ownEnemies(){
+        if (!_enemiesBorrowed){
+            return;
+        }
+        List<Entity> enemies = new ArrayList<>(_enemies.size());
+        for (int i = 0; i < _enemies.size(); i++){
+            Entity source = _enemies.get(i);
+            Entity enemy;
+            if (source instanceof Ghost){
+                Ghost ghost = (Ghost) source;
+                enemy = new Ghost(ghost.getName(), ghost.followsPlayer());
+            } else{
+                enemy = new Entity();
+            }
+            enemy.setPos(_positions.at(_store.x(i), _store.y(i)));
+            enemies.add(enemy);
+        }
+        _enemies = enemies;
+        _enemiesBorrowed = false;
+        _enemiesLent = false;
+    }
+    
+    /**
+     * garante que a lista de inimigos so pertence a este jogo, antes de
+     * acrescentar ou remover um inimigo
+     */
+    private void ownEnemyList(){
+        ownEnemies();
+        if (_enemiesLent){
+            _enemies = new ArrayList<>(_enemies);
+            _enemiesLent = false;
+        }
+    }
+    
+    private void copyPlayer(Pacman source){
+        copyEntity(source, _player);
+        _player.setLives(source.getLives());
+        if (source.isPoweredUp() && !_player.isPoweredUp()){
+            _player.consume(_powerUp);
+        } else if (!source.isPoweredUp() && _player.isPoweredUp()){
+            _player.powerDown();
+        }
+    }
+    
+    /**
+     * copia as pilulas antes da primeira mudanca caso elas ainda sejam
+     * compartilhadas com um fork, nas pilulas guardadas pelo ultimo restore
+     * se elas forem as mesmas
+     */
+    private void ownPills(){
+        if (!_pillsShared){
+            return;
+        }
+        List<Pill> pills = _sparePills;
+        _sparePills = null;
+        if (!samePills(pills, _pills)){
+            pills = new ArrayList<>(_pills.size());
+            for (int i = 0; i < _pills.size(); i++){
+                pills.add(new Pill(_pills.get(i).getReward()));
+            }
+        }
+        for (int i = 0; i < _pills.size(); i++){
+            copyEntity(_pills.get(i), pills.get(i));
+        }
+        _pills = pills;
+        _pillsShared = false;
+    }
+    
+    private static boolean samePills(List<Pill> pills, List<Pill> sources){
+        if (pills == null || pills.size() != sources.size()){
+            return false;
+        }
+        for (int i = 0; i < pills.size(); i++){
+            if (pills.get(i).getReward() != sources.get(i).getReward()){
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * getter para o jogador
+     * @return jogador movido por este jogo
+     */
+    public Pacman getPlayer(){
+        return _player;
     }
     
     /**
-     * inicializa pilulas, suas posicoes e recompensas
+     * camadas atuais do tabuleiro, para quem le o estado casa a casa sem
+     * copiar o estagio; o objeto muda a cada level, fork e restore
+     * @return camadas do tabuleiro
+     */
+    BoardLayers layers(){
+        return _layers;
+    }
+    
+    /**
+     * indice de ocupacao atual, com as mesmas ressalvas de layers
+     * @return indice de ocupacao
+     */
+    OccupancyIndex occupancy(){
+        return _occupancy;
+    }
+    
+    /**
+     * cria as pilulas nas casas marcadas pelo level
      */
     private void initPills(){
-        for(int i = 0; i < 4; i++){
-            _pills.add(new Pill(50));
+        _pills = new ArrayList<>();
+        _pillsShared = false;
+        for (int i = 0; i < _positions.validPositionCount(); i++){
+            Position position = _positions.validPosition(i);
+            if (_layers.hasPill(position.getX(), position.getY())){
+                Pill pill = new Pill(50);
+                pill.setPos(position);
+                _occupancy.setPill(_occupancy.cellIndex(position.getX(), position.getY()), _pills.size());
+                _pills.add(pill);
+            }
         }
-        
-        _pills.get(0).setPos(new Position(1, 1));
-        _pills.get(1).setPos(new Position(1, _board.getWidth() - 2));
-        _pills.get(2).setPos(new Position(_board.getHeight() - 2, 1));
-        _pills.get(3).setPos(new Position(_board.getHeight() - 2, _board.getHeight() - 2));
+    }
+    
+    /**
+     * zera os contadores do level
+     */
+    private void resetLevelCounters(){
+        _pacdotsConsumed = 0;
+        _fruitsSpawned = 0;
     }
     
     /**
      * reinicia as posicoes dos inimigos e do pacman para as iniciais
      */
     public void restartPositions(){
-        int ghostsPlaced = 0;
-        for (Entity enemy : _enemies){
-            //_validityPosMap[enemy.getPosX()][enemy.getPosY()] = true;
-            enemy.setPos(GHOSTSTARTPOSITION.getX(), GHOSTSTARTPOSITION.getY() + ghostsPlaced++);
+        int houseWidth = ghostHouseWidth();
+        for (int i = 0; i < _enemies.size(); i++){
+            moveEnemy(i, _ghostStartPosition.getX(), _ghostStartPosition.getY() + (i % houseWidth));
+            _occupancy.place(i, _occupancy.cellOf(i));
         }
-        //_validityPosMap[_player.getPosX()][_player.getPosY()] = true;
-        _player.setPos(PLAYERSTARTPOSITION);
+        setNewPosition(_player, _playerStartPosition);
+        _playerLastCell = cellOf(_playerStartPosition);
         _playerHit = false;
+        _playerDirection = Direction.NONE;
+        _store.clearHeadings();
+        _ghostModes.reset();
+        _lastGhostMode = _ghostModes.getMode();
+    }
+    
+    /**
+     * quantas casas validas seguidas existem a partir da posicao inicial dos
+     * fantasmas, para que com muitos fantasmas eles sejam empilhados dentro
+     * da casa em vez de serem colocados em paredes
+     * @return largura da casa dos fantasmas, no minimo 1
+     */
+    private int ghostHouseWidth(){
+        int width = 1;
+        while (_layers.isWalkable(_ghostStartPosition.getX(), _ghostStartPosition.getY() + width)){
+            width++;
+        }
+        return width;
     }
     
     /**
@@ -119,11 +492,22 @@ public class GameLogic {
         return _score;
     }
     
+    /**
+     * quantidade de fantasmas comidos pelo jogador desde o inicio do jogo
+     * @return numero de fantasmas comidos
+     */
+    public int getGhostsEaten(){
+        return _ghostsEaten;
+    }
+    
     /**
      * seta a fruta que devera ser spawnada no level atual
      * @param levelFruit fruta referente ao level
      */
     public void setLevelFruit(Fruit levelFruit){
+        if (this._levelFruit != null && this._levelFruit.isAlive()){
+            fireCellChanged(this._levelFruit.getPosX(), this._levelFruit.getPosY());
+        }
         this._levelFruit = levelFruit;
         this._levelFruit.die();
     }
@@ -150,15 +534,14 @@ public class GameLogic {
      * @return tabuleiro com os elementos
      */
     public char[][] getCurrentStage(){
-        char[][] currentStage = Utils.copyGrid(_board.getBaseBoard());
-        
-        if (fruitShouldSpawn()){
-            _levelFruit.setPos(randomValidPosition());
-            _levelFruit.live();
-            _fruitsSpawned++;
+        char[][] currentStage = new char[_layers.getHeight()][_layers.getWidth()];
+        for (int i = 0; i < currentStage.length; i++){
+            for (int j = 0; j < currentStage[i].length; j++){
+                currentStage[i][j] = _layers.symbolAt(i, j);
+            }
         }
         
-        if (_levelFruit.isAlive()){
+        if (_levelFruit != null && _levelFruit.isAlive()){
             currentStage[_levelFruit.getPosX()][_levelFruit.getPosY()] = 'F';
         }
         
@@ -168,14 +551,8 @@ public class GameLogic {
             }
         }
         
-        for (Entity ene : _enemies){
-            char enemySymbol = 'E';
-            if (ene instanceof Ghost){
-                Ghost ghost = (Ghost) ene;
-                enemySymbol = ghost.getName().charAt(0);
-            }
-            
-            currentStage[ene.getPosX()][ene.getPosY()] = enemySymbol;
+        for (int i = 0; i < _store.size(); i++){
+            currentStage[_store.x(i)][_store.y(i)] = _store.symbol(i);
         }
         
         currentStage[_player.getPosX()][_player.getPosY()] = 'X';
@@ -183,12 +560,212 @@ public class GameLogic {
     }
     
     /**
-     * reinicia os parametros necessarios para o proximo estagio
+     * simbolo de uma casa do estágio atual, com as entidades sobrepostas da
+     * mesma forma que em getCurrentStage, mas sem copiar o tabuleiro
+     * @param x linha da casa
+     * @param y coluna da casa
+     * @return simbolo da casa
+     */
+    public char cellAt(int x, int y){
+        if (_player.getPosX() == x && _player.getPosY() == y){
+            return 'X';
+        }
+        
+        int cell = _occupancy.cellIndex(x, y);
+        int enemy = _occupancy.topAt(cell);
+        if (enemy != OccupancyIndex.NONE){
+            return _store.symbol(enemy);
+        }
+        
+        return staticCellAt(x, y);
+    }
+    
+    /**
+     * simbolo de uma casa sem o jogador e os inimigos: paredes, pacdots,
+     * pilulas e a fruta do level
+     * @param x linha da casa
+     * @param y coluna da casa
+     * @return simbolo da casa
+     */
+    public char staticCellAt(int x, int y){
+        if (_layers.hasPill(x, y)){
+            return 'G';
+        }
+        
+        if (_levelFruit != null && _levelFruit.isAlive() && 
+                _levelFruit.getPosX() == x && _levelFruit.getPosY() == y){
+            return 'F';
+        }
+        
+        return _layers.symbolAt(x, y);
+    }
+    
+    /**
+     * simbolo usado para representar um inimigo no estágio
+     * @param ene inimigo
+     * @return inicial do nome caso seja um fantasma, 'E' caso contrario
+     */
+    private static char symbolOf(Entity ene){
+        if (ene instanceof Ghost){
+            return ((Ghost) ene).getName().charAt(0);
+        }
+        return 'E';
+    }
+    
+    /**
+     * getter para a altura do tabuleiro atual
+     * @return numero de linhas
+     */
+    public int getHeight(){
+        return _layers.getHeight();
+    }
+    
+    /**
+     * getter para a largura do tabuleiro atual
+     * @return numero de colunas
+     */
+    public int getWidth(){
+        return _layers.getWidth();
+    }
+    
+    /**
+     * quantidade de entidades do estágio (jogador, inimigos, pilulas e fruta),
+     * inclusive as que nao estao vivas
+     * @return numero de entidades
+     */
+    public int entityCount(){
+        return 1 + _enemies.size() + _pills.size() + (_levelFruit != null ? 1 : 0);
+    }
+    
+    /**
+     * quantidade de inimigos, que em entityAt ocupam os indices de 1 a
+     * enemyCount()
+     * @return numero de inimigos
+     */
+    public int enemyCount(){
+        return _enemies.size();
+    }
+    
+    /**
+     * acesso indexado as entidades do estágio, sem alocacao: o jogador vem
+     * primeiro, seguido dos inimigos, das pilulas e da fruta do level
+     * @param index indice entre 0 e entityCount()
+     * @return entidade, que deve ter isAlive() checado por quem consulta
+     */
+    public Entity entityAt(int index){
+        if (index == 0){
+            return _player;
+        }
+        index--;
+        if (index < _enemies.size()){
+            ownEnemies();
+            return _enemies.get(index);
+        }
+        index -= _enemies.size();
+        if (index < _pills.size()){
+            return _pills.get(index);
+        }
+        index -= _pills.size();
+        if (index == 0 && _levelFruit != null){
+            return _levelFruit;
+        }
+        throw new IndexOutOfBoundsException("entity " + index);
+    }
+    
+    /**
+     * iteravel somente leitura sobre as entidades do estágio
+     * @return entidades na mesma ordem de entityAt
+     */
+    public Iterable<Entity> entities(){
+        return () -> new Iterator<Entity>(){
+            private int _next = 0;
+            
+            @Override
+            public boolean hasNext(){
+                return _next < entityCount();
+            }
+            
+            @Override
+            public Entity next(){
+                if (!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                return entityAt(_next++);
+            }
+        };
+    }
+    
+    /**
+     * registra um observador das mudancas do estágio
+     * @param listener observador
+     */
+    public void addStageListener(StageListener listener){
+        _stageListeners.add(listener);
+    }
+    
+    /**
+     * remove um observador das mudancas do estágio
+     * @param listener observador
+     */
+    public void removeStageListener(StageListener listener){
+        _stageListeners.remove(listener);
+    }
+    
+    /**
+     * avisa os observadores que uma casa mudou
+     */
+    private void fireCellChanged(int x, int y){
+        for (int i = 0; i < _stageListeners.size(); i++){
+            _stageListeners.get(i).cellChanged(x, y);
+        }
+    }
+    
+    /**
+     * avisa os observadores que o estágio inteiro mudou
+     */
+    private void fireStageReset(){
+        for (int i = 0; i < _stageListeners.size(); i++){
+            _stageListeners.get(i).stageReset();
+        }
+    }
+    
+    /**
+     * reinicia os parametros necessarios para o proximo estagio, repetindo
+     * o level atual
      */
     public void nextLevel(){
+        nextLevel(_level);
+    }
+    
+    /**
+     * reinicia os parametros necessarios para o proximo estagio
+     * @param level level do proximo estagio
+     */
+    public void nextLevel(Level level){
+        loadLevel(level);
+        resetLevelCounters();
         restartPositions();
-        _board = new Board();
-        initPills();
+        fireStageReset();
+    }
+    
+    /**
+     * getter para o level atual
+     * @return level em jogo
+     */
+    public Level getLevel(){
+        return _level;
+    }
+    
+    /**
+     * faz a fruta do level aparecer caso os criterios tenham sido cumpridos
+     */
+    private void spawnFruitIfNeeded(){
+        if (_levelFruit != null && fruitShouldSpawn()){
+            _levelFruit.setPos(randomValidPosition());
+            _levelFruit.live();
+            _fruitsSpawned++;
+            fireCellChanged(_levelFruit.getPosX(), _levelFruit.getPosY());
+        }
     }
     
     /**
@@ -214,10 +791,7 @@ public class GameLogic {
      * @return true se o level tiver terminado false se nao tiver
      */
     public boolean levelEnded(){
-        if (_totalPacdots == 0){
-            return true;
-        }
-        return false;
+        return !_layers.hasPacdots();
     }
     
     /**
@@ -232,17 +806,36 @@ public class GameLogic {
     }
     
     /**
-     * checa se existe um inimigo em determinada posicao e se houver indica qual
+     * checa se existe um inimigo em determinada posicao e se houver indica qual,
+     * consultando o indice de ocupacao
      * @param pos posicao que sera checada
-     * @return inimigo caso exista um na posicao ou nulo caso nao exista
+     * @return indice do inimigo caso exista um na posicao ou
+     * OccupancyIndex.NONE caso nao exista
      */
-    private Entity enemyAtPosition(Position pos){
-        for (Entity enemy : _enemies){
-            if (Position.equals(pos, enemy.getPos())){
-                return enemy;
-            }
-        }
-        return null;
+    private int enemyAtPosition(Position pos){
+        return _occupancy.firstAt(cellOf(pos));
+    }
+    
+    /**
+     * indica se um movimento de um inimigo pega o jogador: se ele termina na
+     * casa do jogador ou se os dois trocaram de casa (o inimigo vai para a
+     * casa de onde o jogador saiu enquanto o jogador foi para a casa dele)
+     * @param from casa de onde o inimigo sai
+     * @param to casa para onde o inimigo vai
+     * @return true se houver colisao
+     */
+    private boolean crossesPlayer(int from, int to){
+        int playerCell = cellOf(_player.getPos());
+        return to == playerCell || (from == playerCell && to == _playerLastCell);
+    }
+    
+    /**
+     * indice de uma posicao no indice de ocupacao
+     * @param pos posicao
+     * @return indice da casa
+     */
+    private int cellOf(Position pos){
+        return _occupancy.cellIndex(pos.getX(), pos.getY());
     }
     
     /**
@@ -251,12 +844,10 @@ public class GameLogic {
      * @return pilula caso exista uma na posicao ou nulo caso nao exista
      */
     private Pill pillAtPosition(Position pos){
-        for (Pill pill : _pills){
-            if (pill.isAlive() && Position.equals(pos, pill.getPos())){
-                return pill;
-            }
+        if (!_layers.hasPill(pos.getX(), pos.getY())){
+            return null;
         }
-        return null;
+        return _pills.get(_occupancy.pillAt(cellOf(pos)));
     }
     
     /**
@@ -273,30 +864,37 @@ public class GameLogic {
      * @return se a mudanca de posicao pode ser feita ou nao
      */
     public boolean tryMovePlayer(int x, int y){
-        if (_validityPosMap[x][y]){
-            Entity enemy = enemyAtPosition(new Position(x, y));
-            if (enemy != null){
+        if (_layers.isWalkable(x, y)){
+            Position target = _positions.at(x, y);
+            int enemy = enemyAtPosition(target);
+            if (enemy != OccupancyIndex.NONE){
                 if (_player.isPoweredUp()){
                     _score += _consumedGhostReward;
                     _consumedGhostReward *= 2;
-                    enemy.setPos(GHOSTSTARTPOSITION);
+                    _ghostsEaten++;
+                    moveEnemy(enemy, _ghostStartPosition.getX(), _ghostStartPosition.getY());
                 }else{
                     _playerHit = true;
                     return false;
                 }
             }
             
-            Pill pillFound = pillAtPosition(new Position(x, y));
+            if (_layers.hasPill(x, y)){
+                ownPills();
+            }
+            Pill pillFound = pillAtPosition(target);
             if (pillFound != null){
                 _score += _player.consume(pillFound);
+                _layers.setPill(x, y, false);
+                _occupancy.setPill(cellOf(target), OccupancyIndex.NONE);
             }
             
-            setNewPosition(_player, new Position(x, y));
-            if (_board.getBaseBoard()[_player.getPosX()][_player.getPosY()] == '.'){
-               _board.getBaseBoard()[_player.getPosX()][_player.getPosY()]  = ' ';
+            _playerLastCell = cellOf(_player.getPos());
+            _playerDirection = stepDirection(_player.getPos(), target);
+            setNewPosition(_player, target);
+            if (_layers.eatPacdot(x, y)){
                _score += 10;
                _pacdotsConsumed++;
-               _totalPacdots--;
             }
             
             if (_levelFruit.isAlive() && Position.equals(_player.getPos(), _levelFruit.getPos())){
@@ -304,6 +902,8 @@ public class GameLogic {
                 _levelFruit.die();
             }
             
+            spawnFruitIfNeeded();
+            
             if (_score == 10000 && !_gotExtraLife){
                 _gotExtraLife = true;
                 _player.setLives(_player.getLives() + 1);
@@ -318,9 +918,15 @@ public class GameLogic {
      * @param newEntity entidade adicionada
      */
     public void addEnemy(Entity newEntity){
-        //setFirstPosition(newEntity, GHOSTSTARTPOSITION);
-        newEntity.setPos(GHOSTSTARTPOSITION);
+        newEntity.setPos(_ghostStartPosition);
+        boolean ghost = newEntity instanceof Ghost;
+        int slot = _store.add(_ghostStartPosition.getX(), _ghostStartPosition.getY(), symbolOf(newEntity), ghost,
+                              ghost ? ClassicGhostBrain.forGhost((Ghost) newEntity) : ClassicGhostBrain.WANDERER);
+        _occupancy.place(slot, cellOf(_ghostStartPosition));
+        ownEnemyList();
         _enemies.add(newEntity);
+        _foundGhost = null;
+        fireCellChanged(newEntity.getPosX(), newEntity.getPosY());
     }
     
     /** 
@@ -328,119 +934,500 @@ public class GameLogic {
      * @param ent entidade que será removida
      */
     public void removeEnemy(Entity ent){
-        //_validityPosMap[ent.getPosX()][ent.getPosY()] = true;
-        _enemies.remove(ent);
+        int slot = _enemies.indexOf(ent);
+        if (slot >= 0){
+            int x = _store.x(slot);
+            int y = _store.y(slot);
+            ownEnemyList();
+            _enemies.remove(slot);
+            _store.remove(slot);
+            _foundGhost = null;
+            rebuildOccupancy();
+            fireCellChanged(x, y);
+        }
     }
     
     /**
-     * seta o estágio inicial com quais posições são válidas ou não
+     * carrega o level: copia as camadas iniciais do tabuleiro (paredes,
+     * pacdots e pilulas) e reaproveita a tabela de navegação e a grade de
+     * posicoes do level, calculadas uma unica vez
+     * @param level level carregado
      */
-    private void initValidPositionsStage() {
-        boolean[][] confirmedValidPositions = new boolean[_board.getHeight()][_board.getWidth()];
-        
-        for (int i = 0; i < _board.getHeight(); i++){
-            for (int j = 0; j < _board.getWidth(); j++){
-                char symbol = _board.getElementAt(i, j);
-                
-                confirmedValidPositions[i][j] = ! _invalidSpaceSymbols.contains(symbol);
+    private void loadLevel(Level level) {
+        _level = level;
+        _layers = level.newLayers();
+        _navigation = level.getNavigation();
+        _pathfinding = null;
+        if (_navigation == null){
+            _pathfinding = new PathfindingService(_layers);
+            _pathfinding.setBudget(_pathfindingBudget);
+        }
+        _positions = level.getPositions();
+        _playerStartPosition = _positions.at(level.getPlayerStartX(), level.getPlayerStartY());
+        _ghostStartPosition = _positions.at(level.getGhostStartX(), level.getGhostStartY());
+        _occupancy = new OccupancyIndex(_layers.getHeight(), _layers.getWidth(), _enemies.size());
+        initPills();
+        for (int i = 0; i < _enemies.size(); i++){
+            if (!_enemiesBorrowed){
+                _enemies.get(i).setPos(_ghostStartPosition);
             }
+            _store.setPosition(i, _ghostStartPosition.getX(), _ghostStartPosition.getY());
         }
-        
-        _validityPosMap = confirmedValidPositions;
+        rebuildOccupancy();
     }
     
     /**
-     * atualiza o tabuleiro movendo as entidades que precisam ser movidas
+     * recoloca todos os inimigos no indice de ocupacao, necessario quando os
+     * indices dos inimigos mudam
+     */
+    private void rebuildOccupancy(){
+        _occupancy.clearEnemies();
+        for (int i = 0; i < _enemies.size(); i++){
+            _occupancy.place(i, _occupancy.cellIndex(_store.x(i), _store.y(i)));
+        }
+    }
+    
+    /**
+     * atualiza o tabuleiro movendo as entidades que precisam ser movidas, em
+     * duas fases: primeiro a intencao de cada fantasma e calculada a partir
+     * das posicoes do inicio do tick, sem alterar nada (em paralelo, com
+     * muitos fantasmas), depois as intencoes sao aplicadas em ordem e as
+     * colisoes com o jogador verificadas. Assim nenhum fantasma ve o
+     * movimento de outro no mesmo tick e o resultado nao depende da ordem
+     * dos fantasmas nem de como eles foram divididos entre as threads
      */
     public void updateEnemiesPositions(){
-        for (Entity enemy : _enemies){
-            if (enemy instanceof Ghost){
-                Ghost currentGhost = (Ghost) enemy;
-                ghostMove(currentGhost);
+        if (_pathfinding != null){
+            _pathfinding.update(_player.getPosX(), _player.getPosY());
+        }
+        int mode = getGhostMode();
+        boolean reverse = mode != _lastGhostMode;
+        _lastGhostMode = mode;
+        _ghostSeed = _random.nextLong();
+        
+        int ghosts = _store.size();
+        if (_ghostIntent.length < ghosts){
+            _ghostIntent = new int[Math.max(ghosts, _ghostIntent.length * 2)];
+        }
+        if (ghosts >= _parallelGhosts && ForkJoinPool.getCommonPoolParallelism() > 1){
+            ForkJoinPool.commonPool().invoke(new IntentTask(0, ghosts, mode, reverse));
+        } else{
+            computeIntents(0, ghosts, mode, reverse);
+        }
+        
+        for (int i = 0; i < ghosts; i++){
+            if (_store.isGhost(i)){
+                applyGhostMove(i, _ghostIntent[i]);
             }
         }
+        _playerLastCell = cellOf(_player.getPos());
     }
     
     /**
-     * movimenta o fantasma
-     * @param movingGhost 
+     * tarefa que calcula as intencoes de um intervalo de fantasmas,
+     * dividindo-o ao meio ate chegar a GHOST_BATCH fantasmas
      */
-    private void ghostMove(Ghost movingGhost){
-        Position currentPosition = movingGhost.getPos();
-        Position nextMove;
+    private final class IntentTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final int _from;
+        private final int _to;
+        private final int _mode;
+        private final boolean _reverse;
+        
+        IntentTask(int from, int to, int mode, boolean reverse){
+            _from = from;
+            _to = to;
+            _mode = mode;
+            _reverse = reverse;
+        }
         
-        if (movingGhost.followsPlayer()){
-            Stack<Position> moves = Pathfind.findPath(_validityPosMap, currentPosition, _player.getPos());
-            nextMove = moves.pop();
-            if (!_validityPosMap[nextMove.getX()][nextMove.getY()]){
-                nextMove = randomValidNeighbour(currentPosition);
+        @Override
+        protected void compute(){
+            if (_to - _from <= GHOST_BATCH){
+                computeIntents(_from, _to, _mode, _reverse);
+                return;
+            }
+            int middle = (_from + _to) >>> 1;
+            invokeAll(new IntentTask(_from, middle, _mode, _reverse), new IntentTask(middle, _to, _mode, _reverse));
+        }
+    }
+    
+    /**
+     * calcula a intencao dos fantasmas de um intervalo de indices, so lendo o
+     * estado do jogo
+     */
+    private void computeIntents(int from, int to, int mode, boolean reverse){
+        for (int i = from; i < to; i++){
+            if (_store.isGhost(i)){
+                _ghostIntent[i] = ghostIntent(i, mode, reverse);
             }
-        } else{
-            nextMove = randomValidNeighbour(currentPosition);
         }
+    }
+    
+    /**
+     * direcao escolhida pela estrategia do fantasma: assustado ele vaga ao
+     * acaso, senao vai para o vizinho mais proximo do alvo do modo atual.
+     * Como no jogo original um fantasma nao volta para tras, a nao ser em
+     * becos sem saida e quando o modo muda, o que o faz dar meia volta. Nao
+     * altera nada, pode rodar ao mesmo tempo para fantasmas diferentes
+     * @param slot indice do fantasma na lista de inimigos
+     * @param mode modo atual dos fantasmas
+     * @param reverse true se o modo acabou de mudar
+     * @return codigo de Direction, ou Direction.NONE se ele nao se move
+     */
+    private int ghostIntent(int slot, int mode, boolean reverse){
+        int x = _store.x(slot);
+        int y = _store.y(slot);
+        int heading = _store.heading(slot);
         
-        if (Position.equals(nextMove, _player.getPos())){
+        if (reverse && heading != Direction.NONE && canStep(x, y, Direction.opposite(heading))){
+            return Direction.opposite(heading);
+        }
+        long target = GhostBrain.NO_TARGET;
+        GhostBrain brain = _store.brain(slot);
+        if (mode == GhostModeSchedule.CHASE){
+            target = brain.chaseTarget(this, slot);
+        } else if (mode == GhostModeSchedule.SCATTER){
+            target = brain.scatterTarget(this, slot);
+        }
+        return steer(slot, x, y, heading, target);
+    }
+    
+    /**
+     * aplica a intencao de um fantasma, marcando o jogador como atingido se o
+     * passo o pegar
+     * @param slot indice do fantasma na lista de inimigos
+     * @param direction direcao calculada por ghostIntent
+     */
+    private void applyGhostMove(int slot, int direction){
+        int x = _store.x(slot);
+        int y = _store.y(slot);
+        int nextX = x;
+        int nextY = y;
+        if (direction != Direction.NONE){
+            nextX += Direction.DX[direction];
+            nextY += Direction.DY[direction];
+            _store.setHeading(slot, direction);
+        }
+        
+        if (crossesPlayer(_occupancy.cellIndex(x, y), _occupancy.cellIndex(nextX, nextY))){
             _playerHit = true;
         }
         
-        setNewPosition(movingGhost, nextMove);
+        moveEnemy(slot, nextX, nextY);
+    }
+    
+    /**
+     * escolhe a direcao de um fantasma entre os vizinhos validos que nao o
+     * fazem voltar para tras (a volta so e usada em becos sem saida)
+     * @param slot indice do fantasma, que define sua escolha aleatoria
+     * @param x linha do fantasma
+     * @param y coluna do fantasma
+     * @param heading direcao do ultimo passo do fantasma
+     * @param target alvo, ou GhostBrain.NO_TARGET para uma direcao aleatoria
+     * @return direcao escolhida, ou Direction.NONE se o fantasma estiver preso
+     */
+    private int steer(int slot, int x, int y, int heading, long target){
+        int back = Direction.opposite(heading);
+        int candidates = 0;
+        for (int direction = 0; direction < Direction.COUNT; direction++){
+            if (direction != back && canStep(x, y, direction)){
+                candidates |= 1 << direction;
+            }
+        }
+        if (candidates == 0){
+            return back != Direction.NONE && canStep(x, y, back) ? back : Direction.NONE;
+        }
+        
+        if (target == GhostBrain.NO_TARGET){
+            int pick = randomPick(slot, Integer.bitCount(candidates));
+            for (int direction = 0; direction < Direction.COUNT; direction++){
+                if ((candidates & (1 << direction)) != 0 && pick-- == 0){
+                    return direction;
+                }
+            }
+        }
+        
+        int targetX = GhostBrain.targetX(target);
+        int targetY = GhostBrain.targetY(target);
+        int best = closestStep(x, y, candidates, targetX, targetY, distanceMetric(targetX, targetY));
+        if (best == Direction.NONE){
+            best = closestStep(x, y, candidates, targetX, targetY, METRIC_EUCLIDEAN);
+        }
+        return best;
+    }
+    
+    /**
+     * numero aleatorio de um fantasma no tick atual, tirado da semente do
+     * tick e do indice do fantasma (mistura do SplittableRandom), e nao do
+     * gerador compartilhado, para que nao dependa da ordem em que as
+     * threads calculam as intencoes
+     * @param slot indice do fantasma
+     * @param bound limite exclusivo
+     * @return numero entre 0 e bound - 1
+     */
+    private int randomPick(int slot, int bound){
+        long z = _ghostSeed + (slot + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) ((z >>> 33) % bound);
+    }
+    
+    /**
+     * vizinho candidato mais proximo do alvo na medida dada
+     * @return direcao do vizinho, ou Direction.NONE se nenhum candidato tiver
+     * caminho conhecido ate o alvo (em tabuleiros grandes, enquanto a busca
+     * de caminho ainda nao chegou ao fantasma)
+     */
+    private int closestStep(int x, int y, int candidates, int targetX, int targetY, int metric){
+        int best = Direction.NONE;
+        long bestCost = Long.MAX_VALUE;
+        for (int direction = 0; direction < Direction.COUNT; direction++){
+            if ((candidates & (1 << direction)) != 0){
+                long cost = stepCost(x + Direction.DX[direction], y + Direction.DY[direction],
+                                     targetX, targetY, metric);
+                if (cost < bestCost){
+                    best = direction;
+                    bestCost = cost;
+                }
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * medida de distancia usada para um alvo: a distancia de caminho pela
+     * tabela de navegacao quando o alvo e uma casa valida, pelo servico de
+     * busca quando o level nao tem tabela e o alvo e o jogador, e a distancia
+     * em linha reta (como no jogo original) nos demais casos
+     */
+    private int distanceMetric(int targetX, int targetY){
+        if (!_layers.isWalkable(targetX, targetY)){
+            return METRIC_EUCLIDEAN;
+        }
+        if (_navigation != null){
+            return METRIC_NAVIGATION;
+        }
+        if (targetX == _player.getPosX() && targetY == _player.getPosY()){
+            return METRIC_PATHFINDING;
+        }
+        return METRIC_EUCLIDEAN;
+    }
+    
+    /**
+     * custo de uma casa vizinha ate o alvo na medida escolhida, casas sem
+     * caminho conhecido ficam por ultimo
+     */
+    private long stepCost(int x, int y, int targetX, int targetY, int metric){
+        int distance;
+        switch (metric) {
+            case METRIC_NAVIGATION:
+                distance = _navigation.distance(x, y, targetX, targetY);
+                return distance < 0 ? Long.MAX_VALUE : distance;
+            case METRIC_PATHFINDING:
+                distance = _pathfinding.distance(x, y);
+                return distance < 0 ? Long.MAX_VALUE : distance;
+            default:
+                long dx = x - targetX;
+                long dy = y - targetY;
+                return dx * dx + dy * dy;
+        }
+    }
+    
+    /**
+     * indica se e possivel dar um passo a partir de uma posicao
+     */
+    private boolean canStep(int x, int y, int direction){
+        return _layers.isWalkable(x + Direction.DX[direction], y + Direction.DY[direction]);
+    }
+    
+    /**
+     * direcao de um passo entre duas casas vizinhas
+     * @return codigo de Direction, ou Direction.NONE se as casas nao forem
+     * vizinhas
+     */
+    private static int stepDirection(Position from, Position to){
+        int dx = to.getX() - from.getX();
+        int dy = to.getY() - from.getY();
+        for (int direction = 0; direction < Direction.COUNT; direction++){
+            if (Direction.DX[direction] == dx && Direction.DY[direction] == dy){
+                return direction;
+            }
+        }
+        return Direction.NONE;
+    }
+    
+    /**
+     * modo atual dos fantasmas
+     * @return GhostModeSchedule.FRIGHTENED enquanto o jogador estiver
+     * energizado, senao o modo do periodo atual
+     */
+    public int getGhostMode(){
+        return _player.isPoweredUp() ? GhostModeSchedule.FRIGHTENED : _ghostModes.getMode();
+    }
+    
+    /**
+     * avanca o tempo dos periodos de dispersao e perseguicao, que fica parado
+     * enquanto os fantasmas estao assustados
+     * @param millis tempo passado em milissegundos
+     */
+    public void advanceGhostModes(long millis){
+        if (!_player.isPoweredUp()){
+            _ghostModes.advance(millis);
+        }
+    }
+    
+    /**
+     * direcao do ultimo passo do jogador, usada pelas estrategias que miram a
+     * frente dele
+     * @return codigo de Direction, ou Direction.NONE antes do primeiro passo
+     */
+    public int getPlayerDirection(){
+        return _playerDirection;
+    }
+    
+    /**
+     * inimigo pelo seu indice
+     * @param slot indice entre 0 e enemyCount()
+     * @return inimigo
+     */
+    public Entity getEnemy(int slot){
+        ownEnemies();
+        return _enemies.get(slot);
+    }
+    
+    /**
+     * linha de um inimigo, sem passar pelo objeto Entity
+     * @param slot indice entre 0 e enemyCount()
+     * @return linha
+     */
+    public int enemyX(int slot){
+        return _store.x(slot);
+    }
+    
+    /**
+     * coluna de um inimigo, sem passar pelo objeto Entity
+     * @param slot indice entre 0 e enemyCount()
+     * @return coluna
+     */
+    public int enemyY(int slot){
+        return _store.y(slot);
+    }
+    
+    /**
+     * simbolo de um inimigo no estagio
+     * @param slot indice entre 0 e enemyCount()
+     * @return inicial do nome caso seja um fantasma, 'E' caso contrario
+     */
+    public char enemySymbol(int slot){
+        return _store.symbol(slot);
+    }
+    
+    /**
+     * indice do primeiro fantasma com o nome dado (Inky procura Blinky a cada
+     * passo), a ultima busca fica guardada ate a lista de inimigos mudar
+     * @param name nome do fantasma
+     * @return indice do fantasma, ou -1 se nao houver
+     */
+    public int findGhost(String name){
+        FoundGhost found = _foundGhost;
+        if (found != null && name.equals(found._name)){
+            return found._slot;
+        }
+        int slot = OccupancyIndex.NONE;
+        for (int i = 0; i < _enemies.size(); i++){
+            Entity enemy = _enemies.get(i);
+            if (enemy instanceof Ghost && ((Ghost) enemy).getName().equals(name)){
+                slot = i;
+                break;
+            }
+        }
+        _foundGhost = new FoundGhost(name, slot);
+        return slot;
+    }
+    
+    /**
+     * troca a estrategia de um fantasma
+     * @param slot indice do fantasma na lista de inimigos
+     * @param brain nova estrategia
+     */
+    public void setGhostBrain(int slot, GhostBrain brain){
+        _store.setBrain(slot, brain);
+    }
+    
+    /**
+     * estrategia de um fantasma
+     * @param slot indice do fantasma na lista de inimigos
+     * @return estrategia atual
+     */
+    public GhostBrain getGhostBrain(int slot){
+        return _store.brain(slot);
+    }
+    
+    /**
+     * define a partir de quantos fantasmas as intencoes de movimento sao
+     * calculadas em paralelo (no pool comum, se houver mais de um
+     * processador); o resultado e o mesmo nos dois casos
+     * @param ghosts numero de fantasmas, Integer.MAX_VALUE desliga o paralelismo
+     */
+    public void setParallelGhosts(int ghosts){
+        _parallelGhosts = Math.max(1, ghosts);
+    }
+    
+    /**
+     * define quantas casas a busca de caminho pode expandir a cada
+     * movimentacao dos fantasmas, em levels sem tabela de navegacao
+     * @param budget orcamento de casas, no minimo 1
+     */
+    public void setPathfindingBudget(int budget){
+        _pathfindingBudget = Math.max(1, budget);
+        if (_pathfinding != null){
+            _pathfinding.setBudget(_pathfindingBudget);
+        }
     }
 
     /**
-     * gera uma posicao vizinha aleatoria valida
-     * @param currentPosition posicao atual
-     * @return posicao do vizinho valido caso exista, ou a posicao passada caso 
-     * nao exista um vizinho valido
+     * muda a posição de um inimigo no EntityStore, mantendo o indice de
+     * ocupacao e a posicao do objeto Entity, que e so uma visao do store
+     * (a menos que os objetos sejam emprestados de outro jogo)
+     * @param slot indice do inimigo na lista de inimigos
+     * @param x nova linha do inimigo
+     * @param y nova coluna do inimigo
      */
-    private Position randomValidNeighbour(Position currentPosition){
-        Position validNeighbour;
-        Collection<Position> validNeighbours = currentPosition.neighbours(_board.getHeight(), _board.getWidth());
-        filterValidPositions(validNeighbours);
-        if (validNeighbours.isEmpty()){
-            validNeighbour = currentPosition;
-        }else{
-            validNeighbour = Utils.chooseRandom(validNeighbours);
+    private void moveEnemy(int slot, int x, int y){
+        int oldX = _store.x(slot);
+        int oldY = _store.y(slot);
+        _occupancy.move(slot, _occupancy.cellIndex(x, y));
+        _store.setPosition(slot, x, y);
+        if (!_enemiesBorrowed){
+            _enemies.get(slot).setPos(_positions.at(x, y));
         }
-        return validNeighbour;
+        fireCellChanged(oldX, oldY);
+        fireCellChanged(x, y);
     }
     
     /**
-     * muda a posição da entidade para a solicitada
+     * muda a posição da entidade para a solicitada, inimigos devem ser
+     * movidos por moveEnemy para que o indice de ocupacao acompanhe
      * @param ent entidade sendo movida
      * @param newPosition nova posição da entidade
      */
     private void setNewPosition(Entity ent, Position newPosition){
-        //_validityPosMap[ent.getPosX()][ent.getPosY()] = true;
-        //_validityPosMap[newPosition.getX()][newPosition.getY()] = false;
+        Position oldPosition = ent.getPos();
         ent.setPos(newPosition);
+        if (oldPosition != null){
+            fireCellChanged(oldPosition.getX(), oldPosition.getY());
+        }
+        fireCellChanged(newPosition.getX(), newPosition.getY());
     }
 
-    /**
-     * filtra a coleção mantendo apenas os elementos válidos
-     * @param group 
-     */
-    private void filterValidPositions(Collection<Position> group){
-        group.removeIf(pos -> (! _validityPosMap[pos.getX()][pos.getY()]));
-    }
-    
     /**
      * seleciona uma posição válida aleatória do tabuleiro
      * @return posição aleatória do tabuleiro
      */
     private Position randomValidPosition() {
-        List<Position> validPositions = new LinkedList();
-        
-        for (int i = 0; i < _board.getHeight(); i++){
-            for (int j = 0; j < _board.getWidth(); j++){
-                if (_validityPosMap[i][j]){
-                    validPositions.add(new Position(i, j));
-                }
-            }
-        }
-        
-        Random randGen = new Random();
-        int selectedPositionIndex = randGen.nextInt(validPositions.size());
-        
-        return validPositions.get(selectedPositionIndex);
+        return _positions.validPosition(_random.nextInt(_positions.validPositionCount()));
     }
 }
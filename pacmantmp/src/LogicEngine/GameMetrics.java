@@ -0,0 +1,382 @@
+package LogicEngine;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * metricas de desempenho do jogo: um histograma de duracao por fase (quadro,
+ * retrato, tick, fantasmas, desenho), quadros e ticks por segundo e bytes
+ * alocados por quadro. As fases sao medidas com begin/end e, com as metricas
+ * desligadas, begin e end nao leem o relogio. Cada fase deve ser medida
+ * sempre pela mesma thread (a simulacao mede ticks, fantasmas e retratos, a
+ * interface mede quadros e desenho), que a cada segundo publica a janela da
+ * fase e soma seus valores aos totais. As leituras de outras threads (a
+ * interface, o JMX) veem so o que ja foi publicado
+ * @author matheus
+ */
+public class GameMetrics implements GameMetricsMXBean {
+    /**
+     * intervalo entre dois quadros
+     */
+    public static final int FRAME = 0;
+
+    /**
+     * montagem e publicacao do retrato de um tick para o desenho
+     */
+    public static final int SNAPSHOT = 1;
+
+    /**
+     * um tick de simulacao
+     */
+    public static final int TICK = 2;
+
+    /**
+     * movimentacao dos fantasmas, incluindo a busca de caminho
+     */
+    public static final int GHOSTS = 3;
+
+    /**
+     * desenho de um quadro
+     */
+    public static final int RENDER = 4;
+
+    /**
+     * quantidade de fases medidas
+     */
+    public static final int PHASE_COUNT = 5;
+
+    private static final String[] PHASE_NAMES = {"frame", "snapshot", "tick", "ghosts", "render"};
+
+    private static final long WINDOW_NANOS = 1000000000L;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * janela publicada de uma fase, imutavel depois de publicada
+     */
+    private static final class PublishedWindow {
+        final LatencyHistogram _window;
+        final LatencyHistogram _totals;
+        final double _perSecond;
+
+        PublishedWindow(LatencyHistogram window, LatencyHistogram totals, double perSecond){
+            _window = window;
+            _totals = totals;
+            _perSecond = perSecond;
+        }
+    }
+
+    private static final PublishedWindow EMPTY_WINDOW =
+            new PublishedWindow(new LatencyHistogram(), new LatencyHistogram(), 0);
+
+    private volatile boolean _enabled;
+    private volatile int _resetGeneration = 0;
+
+    private final LatencyHistogram[] _window = new LatencyHistogram[PHASE_COUNT];
+    private final LatencyHistogram[] _totals = new LatencyHistogram[PHASE_COUNT];
+    private final long[] _windowStart = new long[PHASE_COUNT];
+    private final int[] _seenResetGeneration = new int[PHASE_COUNT];
+    private final AtomicReferenceArray<PublishedWindow> _published = new AtomicReferenceArray<>(PHASE_COUNT);
+
+    private final LatencyHistogram _allocationPerFrame = new LatencyHistogram();
+    private final com.sun.management.ThreadMXBean _threadBean;
+    private long _lastAllocatedBytes = -1;
+    private volatile double _allocatedBytesPerFrame = -1;
+
+    private long _lastFrameNanos = -1;
+
+    private volatile long _firstFrameMillis = -1;
+    private volatile long _firstGameFrameMillis = -1;
+
+    /**
+     * Construtor
+     * @param enabled true para comecar coletando
+     */
+    public GameMetrics(boolean enabled){
+        _enabled = enabled;
+        for (int phase = 0; phase < PHASE_COUNT; phase++){
+            _window[phase] = new LatencyHistogram();
+            _totals[phase] = new LatencyHistogram();
+            _windowStart[phase] = -1;
+            _published.set(phase, EMPTY_WINDOW);
+        }
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()){
+            _threadBean = (com.sun.management.ThreadMXBean) threadBean;
+            _threadBean.setThreadAllocatedMemoryEnabled(true);
+        } else{
+            _threadBean = null;
+        }
+    }
+
+    /**
+     * nome de uma fase
+     * @param phase codigo da fase
+     * @return nome usado no relatorio
+     */
+    public static String phaseName(int phase){
+        return PHASE_NAMES[phase];
+    }
+
+    /**
+     * inicio da medicao de uma fase
+     * @return marca de tempo a ser passada para end, ou 0 com as metricas
+     * desligadas
+     */
+    public long begin(){
+        return _enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * fim da medicao de uma fase
+     * @param phase codigo da fase
+     * @param start valor devolvido por begin
+     */
+    public void end(int phase, long start){
+        if (start != 0 && _enabled){
+            long now = System.nanoTime();
+            record(phase, now - start, now);
+        }
+    }
+
+    /**
+     * marca o inicio de um quadro: mede o intervalo desde o quadro anterior e
+     * os bytes alocados pela thread nesse intervalo
+     */
+    public void frame(){
+        if (!_enabled){
+            _lastFrameNanos = -1;
+            _lastAllocatedBytes = -1;
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (_threadBean != null){
+            long allocated = _threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            if (_lastAllocatedBytes >= 0 && allocated >= _lastAllocatedBytes){
+                _allocationPerFrame.record(allocated - _lastAllocatedBytes);
+            }
+            _lastAllocatedBytes = allocated;
+        }
+        if (_lastFrameNanos >= 0){
+            record(FRAME, now - _lastFrameNanos, now);
+        }
+        _lastFrameNanos = now;
+    }
+
+    /**
+     * registra uma duracao na janela da fase, publicando a janela quando ela
+     * completa um segundo
+     */
+    private void record(int phase, long duration, long now){
+        if (_windowStart[phase] < 0){
+            _windowStart[phase] = now;
+        } else if (now - _windowStart[phase] >= WINDOW_NANOS){
+            closeWindow(phase, now);
+        }
+        _window[phase].record(duration);
+    }
+
+    /**
+     * publica a janela de uma fase e soma seus valores aos totais
+     */
+    private void closeWindow(int phase, long now){
+        if (_seenResetGeneration[phase] != _resetGeneration){
+            _seenResetGeneration[phase] = _resetGeneration;
+            _totals[phase].reset();
+        }
+
+        LatencyHistogram window = _window[phase];
+        double seconds = (now - _windowStart[phase]) / 1e9;
+        _totals[phase].add(window);
+        _published.set(phase, new PublishedWindow(window.copy(), _totals[phase].copy(),
+                                                  window.getCount() / seconds));
+        window.reset();
+        _windowStart[phase] = now;
+
+        if (phase == FRAME && _threadBean != null){
+            _allocatedBytesPerFrame = _allocationPerFrame.getMean();
+            _allocationPerFrame.reset();
+        }
+    }
+
+    /**
+     * histograma da ultima janela completa de uma fase, nao deve ser
+     * alterado
+     * @param phase codigo da fase
+     * @return histograma em nanossegundos
+     */
+    public LatencyHistogram lastWindow(int phase){
+        return _published.get(phase)._window;
+    }
+
+    /**
+     * percentil da ultima janela de uma fase
+     * @param phase codigo da fase
+     * @param percentile porcentagem, entre 0 e 100
+     * @return tempo em milissegundos
+     */
+    public double percentileMillis(int phase, double percentile){
+        return lastWindow(phase).getPercentile(percentile) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public boolean isEnabled(){
+        return _enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled){
+        _enabled = enabled;
+    }
+
+    @Override
+    public double getFramesPerSecond(){
+        return _published.get(FRAME)._perSecond;
+    }
+
+    @Override
+    public double getTicksPerSecond(){
+        return _published.get(TICK)._perSecond;
+    }
+
+    @Override
+    public double getFrameTimeP50Millis(){
+        return percentileMillis(FRAME, 50);
+    }
+
+    @Override
+    public double getFrameTimeP99Millis(){
+        return percentileMillis(FRAME, 99);
+    }
+
+    @Override
+    public double getTickTimeP99Millis(){
+        return percentileMillis(TICK, 99);
+    }
+
+    @Override
+    public double getGhostUpdateP99Millis(){
+        return percentileMillis(GHOSTS, 99);
+    }
+
+    @Override
+    public double getRenderTimeP99Millis(){
+        return percentileMillis(RENDER, 99);
+    }
+
+    @Override
+    public double getAllocatedBytesPerFrame(){
+        return _allocatedBytesPerFrame;
+    }
+
+    @Override
+    public long getTimeToFirstFrameMillis(){
+        return _firstFrameMillis;
+    }
+
+    @Override
+    public long getTimeToFirstGameFrameMillis(){
+        return _firstGameFrameMillis;
+    }
+
+    /**
+     * registra o primeiro quadro mostrado (o menu), so a primeira chamada
+     * conta; registrado mesmo com as metricas desligadas
+     */
+    public void firstFrame(){
+        if (_firstFrameMillis < 0){
+            _firstFrameMillis = sinceJvmStart();
+        }
+    }
+
+    /**
+     * registra o primeiro quadro do jogo, so a primeira chamada conta;
+     * registrado mesmo com as metricas desligadas
+     */
+    public void firstGameFrame(){
+        if (_firstGameFrameMillis < 0){
+            _firstGameFrameMillis = sinceJvmStart();
+        }
+    }
+
+    /**
+     * tempo desde o inicio da JVM
+     * @return tempo em milissegundos
+     */
+    private static long sinceJvmStart(){
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    @Override
+    public void resetTotals(){
+        _resetGeneration++;
+    }
+
+    @Override
+    public void dumpReport(String file) throws IOException{
+        writeReport(Paths.get(file));
+    }
+
+    /**
+     * registra as metricas no servidor JMX da plataforma
+     * @param name nome do objeto, como "PACMANFX:type=GameMetrics"
+     * @throws JMException caso o nome seja invalido ou ja esteja em uso
+     */
+    public void register(String name) throws JMException{
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, new ObjectName(name));
+    }
+
+    /**
+     * grava o relatorio das metricas, com os totais de cada fase desde o
+     * inicio (ou desde resetTotals) ate a ultima janela publicada
+     * @param path arquivo do relatorio
+     * @throws IOException caso o arquivo nao possa ser escrito
+     */
+    public void writeReport(Path path) throws IOException{
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)){
+            writer.write(report());
+        }
+    }
+
+    /**
+     * relatorio das metricas em texto: uma linha por fase com os tempos em
+     * milissegundos, seguida dos valores da ultima janela e dos tempos de
+     * partida
+     * @return relatorio
+     */
+    public String report(){
+        StringBuilder report = new StringBuilder();
+        report.append("phase,count,min_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,mean_ms\n");
+        for (int phase = 0; phase < PHASE_COUNT; phase++){
+            LatencyHistogram totals = _published.get(phase)._totals;
+            report.append(String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                                        PHASE_NAMES[phase], totals.getCount(),
+                                        totals.getMin() / NANOS_PER_MILLI,
+                                        totals.getPercentile(50) / NANOS_PER_MILLI,
+                                        totals.getPercentile(90) / NANOS_PER_MILLI,
+                                        totals.getPercentile(99) / NANOS_PER_MILLI,
+                                        totals.getPercentile(99.9) / NANOS_PER_MILLI,
+                                        totals.getMax() / NANOS_PER_MILLI,
+                                        totals.getMean() / NANOS_PER_MILLI));
+        }
+        report.append(String.format(Locale.ROOT, "fps,%.1f%nticks_per_second,%.1f%nallocated_bytes_per_frame,%.0f%n",
+                                    getFramesPerSecond(), getTicksPerSecond(), _allocatedBytesPerFrame));
+        report.append(String.format(Locale.ROOT, "time_to_first_frame_ms,%d%ntime_to_first_game_frame_ms,%d%n",
+                                    _firstFrameMillis, _firstGameFrameMillis));
+        return report.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package LogicEngine;
+
+import java.io.IOException;
+
+/**
+ * interface JMX das metricas do jogo, os valores de janela se referem ao
+ * ultimo segundo completo
+ * @author matheus
+ */
+public interface GameMetricsMXBean {
+
+    /**
+     * indica se as metricas estao sendo coletadas
+     * @return true se estiverem ligadas
+     */
+    boolean isEnabled();
+
+    /**
+     * liga ou desliga a coleta das metricas
+     * @param enabled true para ligar
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * quadros desenhados por segundo
+     * @return quadros por segundo
+     */
+    double getFramesPerSecond();
+
+    /**
+     * ticks de simulacao por segundo
+     * @return ticks por segundo
+     */
+    double getTicksPerSecond();
+
+    /**
+     * mediana do tempo entre quadros
+     * @return tempo em milissegundos
+     */
+    double getFrameTimeP50Millis();
+
+    /**
+     * percentil 99 do tempo entre quadros
+     * @return tempo em milissegundos
+     */
+    double getFrameTimeP99Millis();
+
+    /**
+     * percentil 99 do tempo de um tick
+     * @return tempo em milissegundos
+     */
+    double getTickTimeP99Millis();
+
+    /**
+     * percentil 99 do tempo de movimentacao dos fantasmas
+     * @return tempo em milissegundos
+     */
+    double getGhostUpdateP99Millis();
+
+    /**
+     * percentil 99 do tempo de desenho de um quadro
+     * @return tempo em milissegundos
+     */
+    double getRenderTimeP99Millis();
+
+    /**
+     * media de bytes alocados por quadro na thread da interface
+     * @return bytes por quadro, ou -1 caso a JVM nao informe alocacoes
+     */
+    double getAllocatedBytesPerFrame();
+
+    /**
+     * tempo desde o inicio da JVM ate o primeiro quadro do menu
+     * @return tempo em milissegundos, ou -1 antes do primeiro quadro
+     */
+    long getTimeToFirstFrameMillis();
+
+    /**
+     * tempo desde o inicio da JVM ate o primeiro quadro do jogo
+     * @return tempo em milissegundos, ou -1 antes do primeiro quadro
+     */
+    long getTimeToFirstGameFrameMillis();
+
+    /**
+     * zera os totais acumulados desde o inicio
+     */
+    void resetTotals();
+
+    /**
+     * grava o relatorio completo em um arquivo
+     * @param file caminho do arquivo
+     * @throws IOException caso o arquivo nao possa ser escrito
+     */
+    void dumpReport(String file) throws IOException;
+}
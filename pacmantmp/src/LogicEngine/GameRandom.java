@@ -0,0 +1,58 @@
+package LogicEngine;
+
+import java.util.Random;
+
+/**
+ * gerador de numeros aleatorios da GameLogic: o mesmo gerador congruente
+ * linear de java.util.Random (com a mesma semente da a mesma sequencia), mas
+ * com o estado acessivel para que um fork do jogo continue exatamente a
+ * sequencia de onde o original estava. Nao e thread-safe, a GameLogic so o
+ * usa na thread da simulacao
+ * @author matheus
+ */
+final class GameRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long _state;
+
+    /**
+     * Construtor
+     * @param seed semente, como em java.util.Random
+     */
+    GameRandom(long seed){
+        super(seed);
+    }
+
+    @Override
+    public void setSeed(long seed){
+        _state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits){
+        _state = (_state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (_state >>> (48 - bits));
+    }
+
+    /**
+     * copia o gerador no ponto atual da sequencia
+     * @return gerador que produz os mesmos numeros que este produziria
+     */
+    GameRandom copy(){
+        GameRandom copy = new GameRandom(0);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * leva este gerador ao ponto da sequencia de outro
+     * @param source gerador copiado
+     */
+    void copyFrom(GameRandom source){
+        _state = source._state;
+    }
+}
@@ -0,0 +1,389 @@
+package LogicEngine;
+
+import SystemElements.Fruit;
+import SystemElements.Ghost;
+import SystemElements.Pacman;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * sessao de jogo independente da interface grafica: avanca a GameLogic em
+ * ticks discretos de tamanho fixo e trata das regras de tempo, vidas e
+ * troca de level. Pode ser dirigida em tempo real por um relogio (update)
+ * ou o mais rapido possivel, tick a tick (tick)
+ * @author matheus
+ */
+public class GameSession {
+    /**
+     * duracao de um tick, o jogador pode se mover uma vez por tick
+     */
+    public static final int TICK_MILLIS = 100;
+
+    /**
+     * os fantasmas se movem a cada GHOST_MOVE_TICKS ticks (400 ms)
+     */
+    public static final int GHOST_MOVE_TICKS = 4;
+
+    private static final int POWER_UP_MILLIS = 5000;
+    private static final int POWER_UP_DECREASE_PER_LEVEL = 1000;
+
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
+    private static final String[] CLASSIC_GHOSTS = {"Blinky", "Pinky", "Inky", "Clyde"};
+    private static final boolean[] CLASSIC_FOLLOWS_PLAYER = {true, true, false, false};
+
+    private static final GameMetrics DISABLED_METRICS = new GameMetrics(false);
+
+    private final GameLogic _logic;
+    private final Pacman _player;
+    private final InputSource _input;
+    private final GameClock _clock;
+    private GameMetrics _metrics = DISABLED_METRICS;
+    
+    private List<Level> _levels;
+
+    private long _tick = 0;
+    private long _nextTickTime = -1;
+    private long _poweredUpSince = -1;
+
+    private int _heading = Direction.NONE;
+    
+    private int _currentLevel = 1;
+    private int _deaths = 0;
+    private boolean _gameOver = false;
+    private boolean _awaitingInput = false;
+
+    /**
+     * Construtor para sessoes dirigidas pelo relogio do sistema
+     * @param logic logica do jogo, ja com inimigos e fruta do level
+     * @param player jogador controlado pela sessao
+     * @param input fonte dos comandos do jogador
+     */
+    public GameSession(GameLogic logic, Pacman player, InputSource input){
+        this(logic, player, input, GameClock.SYSTEM);
+    }
+
+    /**
+     * Construtor
+     * @param logic logica do jogo, ja com inimigos e fruta do level
+     * @param player jogador controlado pela sessao
+     * @param input fonte dos comandos do jogador
+     * @param clock relogio usado por update
+     */
+    public GameSession(GameLogic logic, Pacman player, InputSource input, GameClock clock){
+        _logic = logic;
+        _player = player;
+        _input = input;
+        _clock = clock;
+        _levels = Collections.singletonList(logic.getLevel());
+    }
+
+    /**
+     * cria uma sessao com o tabuleiro padrao, um novo jogador e os quatro
+     * fantasmas do jogo original
+     * @param seed semente de toda a aleatoriedade do jogo
+     * @param input fonte dos comandos do jogador
+     * @return sessao pronta para rodar
+     */
+    public static GameSession standardGame(long seed, InputSource input){
+        return newGame(Collections.singletonList(Level.standard()), seed, input);
+    }
+
+    /**
+     * cria uma sessao que percorre os levels dados em ordem (voltando ao
+     * primeiro depois do ultimo), com um novo jogador e os quatro fantasmas
+     * do jogo original
+     * @param levels sequencia de levels, de preferencia ja preparados
+     * @param seed semente de toda a aleatoriedade do jogo
+     * @param input fonte dos comandos do jogador
+     * @return sessao pronta para rodar
+     */
+    public static GameSession newGame(List<Level> levels, long seed, InputSource input){
+        return hordeGame(levels, CLASSIC_GHOSTS.length, seed, input);
+    }
+
+    /**
+     * cria uma sessao como newGame, mas com quantos fantasmas forem pedidos,
+     * repetindo em ordem os quatro fantasmas do jogo original; usada nos
+     * labirintos gerados grandes, com centenas de fantasmas
+     * @param levels sequencia de levels, de preferencia ja preparados
+     * @param ghosts numero de fantasmas
+     * @param seed semente de toda a aleatoriedade do jogo
+     * @param input fonte dos comandos do jogador
+     * @return sessao pronta para rodar
+     */
+    public static GameSession hordeGame(List<Level> levels, int ghosts, long seed, InputSource input){
+        Pacman player = new Pacman();
+        GameLogic logic = new GameLogic(levels.get(0), player, seed);
+
+        for (int k = 0; k < ghosts; k++){
+            int classic = k % CLASSIC_GHOSTS.length;
+            logic.addEnemy(new Ghost(CLASSIC_GHOSTS[classic], CLASSIC_FOLLOWS_PLAYER[classic]));
+        }
+
+        logic.setLevelFruit(new Fruit(100));
+        logic.restartPositions();
+
+        GameSession session = new GameSession(logic, player, input);
+        session.setLevels(levels);
+        return session;
+    }
+
+    /**
+     * copia a sessao em um ponto qualquer do jogo com GameLogic.fork, para
+     * simular a partir dali sem afetar esta sessao; o fork nao tem metricas
+     * e e avancado com tick. Um fork feito de dentro de
+     * InputSource.nextDirection continua o tick do ponto em que ele estava,
+     * pedindo o comando a sua propria fonte
+     * @param input fonte dos comandos do jogador no fork
+     * @return sessao independente no mesmo estado desta
+     */
+    public GameSession fork(InputSource input){
+        GameLogic logic = _logic.fork();
+        GameSession fork = new GameSession(logic, logic.getPlayer(), input, _clock);
+        fork.copyState(this);
+        return fork;
+    }
+
+    /**
+     * volta ao estado de uma sessao guardada por fork, mantendo a fonte de
+     * comandos, o relogio e as metricas desta sessao
+     * @param saved sessao guardada, que nao muda
+     */
+    public void restore(GameSession saved){
+        if (saved == this){
+            return;
+        }
+        _logic.restore(saved._logic);
+        copyState(saved);
+    }
+
+    private void copyState(GameSession source){
+        _levels = source._levels;
+        _tick = source._tick;
+        _poweredUpSince = source._poweredUpSince;
+        _heading = source._heading;
+        _currentLevel = source._currentLevel;
+        _deaths = source._deaths;
+        _gameOver = source._gameOver;
+        _awaitingInput = source._awaitingInput;
+    }
+
+    /**
+     * define a sequencia de levels da sessao, o level atual segue como esta
+     * @param levels levels jogados em ordem, voltando ao primeiro depois do
+     * ultimo
+     */
+    public void setLevels(List<Level> levels){
+        if (levels.isEmpty()){
+            throw new IllegalArgumentException("at least one level is required");
+        }
+        _levels = levels;
+    }
+
+    /**
+     * define as metricas onde a sessao registra a duracao dos ticks e da
+     * movimentacao dos fantasmas
+     * @param metrics metricas do jogo
+     */
+    public void setMetrics(GameMetrics metrics){
+        _metrics = metrics;
+    }
+
+    /**
+     * getter para as metricas da sessao
+     * @return metricas, desligadas caso nenhuma tenha sido definida
+     */
+    public GameMetrics getMetrics(){
+        return _metrics;
+    }
+
+    /**
+     * roda os ticks que ja deveriam ter acontecido segundo o relogio, se a
+     * sessao ficou muito para tras os ticks atrasados sao descartados
+     */
+    public void update(){
+        long currentTime = _clock.currentTimeMillis();
+        if (_nextTickTime < 0){
+            _nextTickTime = currentTime;
+        }
+        if (currentTime - _nextTickTime > MAX_CATCH_UP_TICKS * TICK_MILLIS){
+            _nextTickTime = currentTime;
+        }
+
+        while (currentTime >= _nextTickTime && !_gameOver){
+            tick();
+            _nextTickTime += TICK_MILLIS;
+        }
+    }
+
+    /**
+     * avanca o jogo em exatamente um tick
+     */
+    public void tick(){
+        if (_gameOver){
+            return;
+        }
+        long tickStart = _metrics.begin();
+
+        if (!_awaitingInput){
+            if (_logic.levelEnded()){
+                nextLevel();
+            }
+
+            updatePowerUp();
+            _logic.advanceGhostModes(TICK_MILLIS);
+        }
+
+        _awaitingInput = true;
+        int direction = _input.nextDirection();
+        _awaitingInput = false;
+        movePlayer(direction);
+
+        if (_tick % GHOST_MOVE_TICKS == 0){
+            long ghostsStart = _metrics.begin();
+            _logic.updateEnemiesPositions();
+            _metrics.end(GameMetrics.GHOSTS, ghostsStart);
+        }
+
+        if (_logic.playerHit()){
+            _player.setLives(_player.getLives() - 1);
+            _deaths++;
+            _logic.restartPositions();
+            _heading = Direction.NONE;
+        }
+
+        _tick++;
+
+        if (_logic.gameOver()){
+            _gameOver = true;
+        }
+        _metrics.end(GameMetrics.TICK, tickStart);
+    }
+
+    /**
+     * move o jogador na direcao pedida. Como no jogo original, uma curva
+     * pedida antes de ser possivel nao se perde: enquanto a fonte continuar
+     * pedindo a curva o jogador segue na direcao em que vinha, e faz a curva
+     * assim que ela for possivel
+     * @param direction direcao pedida neste tick, Direction.NONE para parar
+     */
+    private void movePlayer(int direction){
+        if (direction == Direction.NONE){
+            _heading = Direction.NONE;
+            return;
+        }
+
+        if (direction != _heading){
+            if (tryStep(direction)){
+                _heading = direction;
+                return;
+            }
+            if (_logic.playerHit()){
+                return;
+            }
+        }
+        if (_heading != Direction.NONE){
+            tryStep(_heading);
+        }
+    }
+
+    /**
+     * tenta dar um passo e avisa a fonte de comandos caso consiga
+     */
+    private boolean tryStep(int direction){
+        if (_logic.tryMovePlayer(_player.getPosX() + Direction.DX[direction],
+                                 _player.getPosY() + Direction.DY[direction])){
+            _input.moved(direction);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * desliga o power-up do jogador quando o tempo do level acaba
+     */
+    private void updatePowerUp(){
+        if (!_player.isPoweredUp()){
+            _poweredUpSince = -1;
+            return;
+        }
+        if (_poweredUpSince < 0){
+            _poweredUpSince = _tick;
+        } else if ((_tick - _poweredUpSince) * TICK_MILLIS > powerUpDuration()){
+            _player.powerDown();
+            _logic.resetConsumedGhostReward();
+            _poweredUpSince = -1;
+        }
+    }
+
+    /**
+     * duracao do power-up no level atual
+     * @return duracao em milissegundos
+     */
+    private int powerUpDuration(){
+        return POWER_UP_MILLIS - (POWER_UP_DECREASE_PER_LEVEL * (_currentLevel - 1));
+    }
+
+    /**
+     * avanca para o proximo level trocando a fruta do level
+     */
+    private void nextLevel(){
+        _logic.nextLevel(_levels.get(_currentLevel % _levels.size()));
+        if (_logic.getLevelFruit().getReward() == 100){
+            _logic.setLevelFruit(new Fruit(300));
+        }else{
+            _logic.setLevelFruit(new Fruit(500));
+        }
+        _currentLevel++;
+    }
+
+    /**
+     * getter para a logica do jogo
+     * @return logica controlada pela sessao
+     */
+    public GameLogic getLogic(){
+        return _logic;
+    }
+
+    /**
+     * getter para o jogador
+     * @return jogador da sessao
+     */
+    public Pacman getPlayer(){
+        return _player;
+    }
+
+    /**
+     * getter para o level atual
+     * @return level atual, comecando em 1
+     */
+    public int getCurrentLevel(){
+        return _currentLevel;
+    }
+
+    /**
+     * quantidade de ticks ja simulados
+     * @return numero de ticks
+     */
+    public long getTickCount(){
+        return _tick;
+    }
+
+    /**
+     * quantidade de vezes que o jogador foi pego
+     * @return numero de mortes
+     */
+    public int getDeaths(){
+        return _deaths;
+    }
+
+    /**
+     * indica se o jogo terminou
+     * @return true se o jogador perdeu todas as vidas
+     */
+    public boolean isGameOver(){
+        return _gameOver;
+    }
+}
@@ -0,0 +1,351 @@
+package LogicEngine;
+
+import SystemElements.Fruit;
+import SystemElements.Pacman;
+
+/**
+ * retrato imutavel do jogo ao fim de um tick, publicado pela SimulationLoop
+ * para quem desenha em outra thread. Guarda as casas sem entidades (paredes,
+ * pacdots, pilulas e fruta) em blocos de CHUNK_SIZE x CHUNK_SIZE casas,
+ * compartilhados entre retratos enquanto nao mudam, e as entidades que se movem (o jogador no indice 0 seguido dos
+ * inimigos) com a casa de onde vieram e o tick em que se moveram, para que as
+ * posicoes possam ser interpoladas entre os ticks
+ * @author matheus
+ */
+public final class GameSnapshot {
+    /**
+     * log2 do lado dos blocos de casas
+     */
+    public static final int CHUNK_BITS = 5;
+
+    /**
+     * lado em casas dos blocos de casas
+     */
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final long TICK_NANOS = GameSession.TICK_MILLIS * 1000000L;
+
+    private final long _tick;
+    private final long _publishedNanos;
+    private final int _currentLevel;
+    private final int _height;
+    private final int _width;
+    private final int _chunkColumns;
+    private final char[][] _chunks;
+
+    private final char[] _symbols;
+    private final int[] _x;
+    private final int[] _y;
+    private final int[] _fromX;
+    private final int[] _fromY;
+    private final long[] _movedAt;
+
+    private final int _score;
+    private final int _ghostsEaten;
+    private final int _lives;
+    private final boolean _poweredUp;
+    private final boolean _gameOver;
+    private final int _fruitReward;
+
+    private GameSnapshot(GameSession session, char[][] chunks, int entities, long publishedNanos){
+        GameLogic logic = session.getLogic();
+        Pacman player = session.getPlayer();
+        Fruit fruit = logic.getLevelFruit();
+
+        _tick = session.getTickCount();
+        _publishedNanos = publishedNanos;
+        _currentLevel = session.getCurrentLevel();
+        _height = logic.getHeight();
+        _width = logic.getWidth();
+        _chunkColumns = chunkCount(_width);
+        _chunks = chunks;
+
+        _symbols = new char[entities];
+        _x = new int[entities];
+        _y = new int[entities];
+        _fromX = new int[entities];
+        _fromY = new int[entities];
+        _movedAt = new long[entities];
+
+        _score = logic.getCurrentScore();
+        _ghostsEaten = logic.getGhostsEaten();
+        _lives = player.getLives();
+        _poweredUp = player.isPoweredUp();
+        _gameOver = session.isGameOver();
+        _fruitReward = fruit != null ? fruit.getReward() : 0;
+    }
+
+    /**
+     * retrata o estado atual da sessao
+     * @param session sessao retratada
+     * @param previous retrato do tick anterior, de onde vem a origem dos
+     * movimentos, ou null
+     * @param chunks blocos de casas sem entidades, que nao podem mais ser
+     * alterados, linha a linha de blocos e cada bloco linha a linha
+     * @param publishedNanos momento da publicacao, em System.nanoTime
+     * @return novo retrato
+     */
+    static GameSnapshot capture(GameSession session, GameSnapshot previous, char[][] chunks, long publishedNanos){
+        GameLogic logic = session.getLogic();
+        int entities = 1 + logic.enemyCount();
+        GameSnapshot snapshot = new GameSnapshot(session, chunks, entities, publishedNanos);
+
+        boolean continues = previous != null && previous._symbols.length == entities
+                && previous._currentLevel == snapshot._currentLevel;
+        Pacman player = session.getPlayer();
+        for (int k = 0; k < entities; k++){
+            int x = k == 0 ? player.getPosX() : logic.enemyX(k - 1);
+            int y = k == 0 ? player.getPosY() : logic.enemyY(k - 1);
+            snapshot._symbols[k] = k == 0 ? 'X' : logic.enemySymbol(k - 1);
+            snapshot._x[k] = x;
+            snapshot._y[k] = y;
+
+            if (!continues){
+                snapshot._fromX[k] = x;
+                snapshot._fromY[k] = y;
+                snapshot._movedAt[k] = snapshot._tick;
+            } else if (previous._x[k] != x || previous._y[k] != y){
+                snapshot._fromX[k] = previous._x[k];
+                snapshot._fromY[k] = previous._y[k];
+                snapshot._movedAt[k] = snapshot._tick;
+            } else{
+                snapshot._fromX[k] = previous._fromX[k];
+                snapshot._fromY[k] = previous._fromY[k];
+                snapshot._movedAt[k] = previous._movedAt[k];
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * fracao ja percorrida do ultimo movimento de uma entidade no momento
+     * dado: o jogador anda uma casa por tick e os fantasmas uma casa a cada
+     * GHOST_MOVE_TICKS ticks. Saltos (entidade que voltou ao inicio, por
+     * exemplo) nao sao interpolados
+     * @param entity indice da entidade
+     * @param nowNanos momento do desenho, em System.nanoTime
+     * @return fracao entre 0 e 1
+     */
+    public double progress(int entity, long nowNanos){
+        if (Math.abs(_x[entity] - _fromX[entity]) + Math.abs(_y[entity] - _fromY[entity]) != 1){
+            return 1;
+        }
+        double sinceTick = Math.max(0, Math.min(1, (double) (nowNanos - _publishedNanos) / TICK_NANOS));
+        int stepTicks = entity == 0 ? 1 : GameSession.GHOST_MOVE_TICKS;
+        return Math.min(1, (_tick - _movedAt[entity] + sinceTick) / stepTicks);
+    }
+
+    /**
+     * linha interpolada de uma entidade no momento dado
+     * @param entity indice da entidade
+     * @param nowNanos momento do desenho, em System.nanoTime
+     * @return linha, fracionaria durante um movimento
+     */
+    public double renderX(int entity, long nowNanos){
+        return _fromX[entity] + (_x[entity] - _fromX[entity]) * progress(entity, nowNanos);
+    }
+
+    /**
+     * coluna interpolada de uma entidade no momento dado
+     * @param entity indice da entidade
+     * @param nowNanos momento do desenho, em System.nanoTime
+     * @return coluna, fracionaria durante um movimento
+     */
+    public double renderY(int entity, long nowNanos){
+        return _fromY[entity] + (_y[entity] - _fromY[entity]) * progress(entity, nowNanos);
+    }
+
+    /**
+     * simbolo de uma casa sem as entidades que se movem
+     * @param x linha da casa
+     * @param y coluna da casa
+     * @return simbolo da casa, como em GameLogic.staticCellAt
+     */
+    public char cellAt(int x, int y){
+        return _chunks[(x >> CHUNK_BITS) * _chunkColumns + (y >> CHUNK_BITS)][chunkOffset(x, y)];
+    }
+
+    /**
+     * indica se as casas deste retrato sao as mesmas de outro, o que acontece
+     * enquanto nenhum pacdot, pilula ou fruta mudar
+     * @param other outro retrato
+     * @return true se as casas forem compartilhadas
+     */
+    public boolean sameCells(GameSnapshot other){
+        return other != null && _chunks == other._chunks;
+    }
+
+    /**
+     * indica se um bloco de casas deste retrato e o mesmo de outro retrato do
+     * mesmo tabuleiro, o que permite pular os blocos que nao mudaram
+     * @param other outro retrato
+     * @param chunkRow linha do bloco
+     * @param chunkColumn coluna do bloco
+     * @return true se o bloco for compartilhado
+     */
+    public boolean sameChunk(GameSnapshot other, int chunkRow, int chunkColumn){
+        int chunk = chunkRow * _chunkColumns + chunkColumn;
+        return other != null && other._chunks.length == _chunks.length && _chunks[chunk] == other._chunks[chunk];
+    }
+
+    /**
+     * numero de linhas de blocos de casas
+     * @return linhas de blocos
+     */
+    public int chunkRows(){
+        return chunkCount(_height);
+    }
+
+    /**
+     * numero de colunas de blocos de casas
+     * @return colunas de blocos
+     */
+    public int chunkColumns(){
+        return _chunkColumns;
+    }
+
+    /**
+     * quantos blocos sao necessarios para cobrir um lado do tabuleiro
+     * @param cells casas do lado
+     * @return numero de blocos
+     */
+    static int chunkCount(int cells){
+        return (cells + CHUNK_MASK) >> CHUNK_BITS;
+    }
+
+    /**
+     * posicao de uma casa dentro do seu bloco
+     * @param x linha da casa
+     * @param y coluna da casa
+     * @return indice no vetor do bloco
+     */
+    static int chunkOffset(int x, int y){
+        return ((x & CHUNK_MASK) << CHUNK_BITS) | (y & CHUNK_MASK);
+    }
+
+    /**
+     * quantidade de entidades que se movem, o jogador e os inimigos
+     * @return numero de entidades
+     */
+    public int entityCount(){
+        return _symbols.length;
+    }
+
+    /**
+     * simbolo de uma entidade: 'X' para o jogador, a inicial do nome para os
+     * fantasmas
+     * @param entity indice da entidade
+     * @return simbolo
+     */
+    public char entitySymbol(int entity){
+        return _symbols[entity];
+    }
+
+    /**
+     * linha atual de uma entidade
+     * @param entity indice da entidade
+     * @return linha
+     */
+    public int entityX(int entity){
+        return _x[entity];
+    }
+
+    /**
+     * coluna atual de uma entidade
+     * @param entity indice da entidade
+     * @return coluna
+     */
+    public int entityY(int entity){
+        return _y[entity];
+    }
+
+    /**
+     * getter para o tick retratado
+     * @return ticks simulados ate este retrato
+     */
+    public long getTick(){
+        return _tick;
+    }
+
+    /**
+     * getter para o momento da publicacao
+     * @return momento em System.nanoTime
+     */
+    public long getPublishedNanos(){
+        return _publishedNanos;
+    }
+
+    /**
+     * getter para o level atual
+     * @return level atual, comecando em 1
+     */
+    public int getCurrentLevel(){
+        return _currentLevel;
+    }
+
+    /**
+     * getter para a altura do tabuleiro
+     * @return numero de linhas
+     */
+    public int getHeight(){
+        return _height;
+    }
+
+    /**
+     * getter para a largura do tabuleiro
+     * @return numero de colunas
+     */
+    public int getWidth(){
+        return _width;
+    }
+
+    /**
+     * getter para o score
+     * @return score atual
+     */
+    public int getScore(){
+        return _score;
+    }
+
+    /**
+     * getter para os fantasmas comidos no jogo
+     * @return numero de fantasmas comidos
+     */
+    public int getGhostsEaten(){
+        return _ghostsEaten;
+    }
+
+    /**
+     * getter para as vidas do jogador
+     * @return vidas restantes
+     */
+    public int getLives(){
+        return _lives;
+    }
+
+    /**
+     * indica se o jogador esta energizado
+     * @return true durante o power-up
+     */
+    public boolean isPoweredUp(){
+        return _poweredUp;
+    }
+
+    /**
+     * indica se o jogo terminou
+     * @return true se o jogador perdeu todas as vidas
+     */
+    public boolean isGameOver(){
+        return _gameOver;
+    }
+
+    /**
+     * recompensa da fruta do level, que define seu sprite
+     * @return recompensa, ou 0 se o level nao tiver fruta
+     */
+    public int getFruitReward(){
+        return _fruitReward;
+    }
+}
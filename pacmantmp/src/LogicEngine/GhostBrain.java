@@ -0,0 +1,62 @@
+package LogicEngine;
+
+/**
+ * estrategia de um fantasma: escolhe a casa alvo que ele persegue em cada
+ * modo. O caminho ate o alvo e decidido pela GameLogic com a tabela de
+ * navegacao ou o servico de busca de caminho do level, de forma que novas
+ * personalidades nao multiplicam o custo das buscas. Os alvos sao casas
+ * empacotadas por target e podem estar fora do tabuleiro ou em paredes.
+ * Os alvos de fantasmas diferentes podem ser pedidos ao mesmo tempo por
+ * threads diferentes, entao as estrategias so devem ler a GameLogic
+ * @author matheus
+ */
+public interface GhostBrain {
+    /**
+     * alvo que faz o fantasma vagar ao acaso
+     */
+    long NO_TARGET = Long.MIN_VALUE;
+
+    /**
+     * casa alvo no modo de perseguicao
+     * @param logic logica do jogo, consultada sem ser alterada
+     * @param slot indice do fantasma na lista de inimigos
+     * @return alvo empacotado por target, ou NO_TARGET
+     */
+    long chaseTarget(GameLogic logic, int slot);
+
+    /**
+     * casa alvo no modo de dispersao
+     * @param logic logica do jogo, consultada sem ser alterada
+     * @param slot indice do fantasma na lista de inimigos
+     * @return alvo empacotado por target, ou NO_TARGET
+     */
+    long scatterTarget(GameLogic logic, int slot);
+
+    /**
+     * empacota uma casa em um long, sem alocacao
+     * @param x linha
+     * @param y coluna
+     * @return alvo empacotado
+     */
+    static long target(int x, int y){
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * linha de um alvo empacotado
+     * @param target alvo
+     * @return linha
+     */
+    static int targetX(long target){
+        return (int) (target >> 32);
+    }
+
+    /**
+     * coluna de um alvo empacotado
+     * @param target alvo
+     * @return coluna
+     */
+    static int targetY(long target){
+        return (int) target;
+    }
+}
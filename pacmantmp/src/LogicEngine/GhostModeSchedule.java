@@ -0,0 +1,94 @@
+package LogicEngine;
+
+/**
+ * alternancia dos modos dos fantasmas como no jogo original: periodos de
+ * dispersao (cada fantasma vai para seu canto) e de perseguicao, terminando
+ * em perseguicao permanente. O tempo nao corre enquanto os fantasmas estao
+ * assustados (jogador energizado), modo que vem do power-up e nao da tabela
+ * @author matheus
+ */
+public class GhostModeSchedule {
+    public static final int SCATTER = 0;
+    public static final int CHASE = 1;
+    public static final int FRIGHTENED = 2;
+
+    /**
+     * duracao dos periodos do primeiro level do jogo original, alternando
+     * dispersao e perseguicao a partir da dispersao
+     */
+    private static final int[] CLASSIC_PHASE_MILLIS = {7000, 20000, 7000, 20000, 5000, 20000, 5000};
+
+    private int[] _phaseMillis;
+    private int _phase = 0;
+    private long _elapsedInPhase = 0;
+
+    /**
+     * Construtor com os tempos do jogo original
+     */
+    public GhostModeSchedule(){
+        this(CLASSIC_PHASE_MILLIS);
+    }
+
+    /**
+     * Construtor
+     * @param phaseMillis duracao de cada periodo em milissegundos, alternando
+     * dispersao e perseguicao a partir da dispersao; depois do ultimo os
+     * fantasmas perseguem para sempre
+     */
+    public GhostModeSchedule(int[] phaseMillis){
+        _phaseMillis = phaseMillis.clone();
+    }
+
+    /**
+     * copia a tabela no ponto atual dos periodos
+     * @return copia independente
+     */
+    public GhostModeSchedule copy(){
+        GhostModeSchedule copy = new GhostModeSchedule(_phaseMillis);
+        copy._phase = _phase;
+        copy._elapsedInPhase = _elapsedInPhase;
+        return copy;
+    }
+
+    /**
+     * troca a tabela e o ponto atual dos periodos pelos de outra, sem
+     * alocar; a tabela, que nunca muda, fica compartilhada
+     * @param source tabela copiada
+     */
+    public void copyFrom(GhostModeSchedule source){
+        _phaseMillis = source._phaseMillis;
+        _phase = source._phase;
+        _elapsedInPhase = source._elapsedInPhase;
+    }
+
+    /**
+     * avanca o tempo dos periodos
+     * @param millis tempo passado em milissegundos
+     */
+    public void advance(long millis){
+        _elapsedInPhase += millis;
+        while (_phase < _phaseMillis.length && _elapsedInPhase >= _phaseMillis[_phase]){
+            _elapsedInPhase -= _phaseMillis[_phase];
+            _phase++;
+        }
+    }
+
+    /**
+     * volta ao primeiro periodo, no inicio de um level ou depois de uma morte
+     */
+    public void reset(){
+        _phase = 0;
+        _elapsedInPhase = 0;
+    }
+
+    /**
+     * modo do periodo atual
+     * @return SCATTER ou CHASE
+     */
+    public int getMode(){
+        if (_phase >= _phaseMillis.length){
+            return CHASE;
+        }
+        return _phase % 2 == 0 ? SCATTER : CHASE;
+    }
+}
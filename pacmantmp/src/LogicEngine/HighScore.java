@@ -0,0 +1,87 @@
+package LogicEngine;
+
+/**
+ * resultado de um jogo terminado, guardado pelo HighScoreStore
+ * @author matheus
+ */
+public final class HighScore {
+    private final int _score;
+    private final int _levelReached;
+    private final long _durationMillis;
+    private final int _ghostsEaten;
+    private final long _timeMillis;
+
+    /**
+     * Construtor
+     * @param score score final
+     * @param levelReached level em que o jogo terminou
+     * @param durationMillis duracao do jogo em tempo de jogo
+     * @param ghostsEaten fantasmas comidos no jogo
+     * @param timeMillis momento em que o jogo terminou, em
+     * System.currentTimeMillis
+     */
+    public HighScore(int score, int levelReached, long durationMillis, int ghostsEaten, long timeMillis){
+        _score = score;
+        _levelReached = levelReached;
+        _durationMillis = durationMillis;
+        _ghostsEaten = ghostsEaten;
+        _timeMillis = timeMillis;
+    }
+
+    /**
+     * resultado de uma sessao, terminando agora
+     * @param session sessao jogada
+     * @return resultado da sessao
+     */
+    public static HighScore of(GameSession session){
+        return new HighScore(session.getLogic().getCurrentScore(), session.getCurrentLevel(),
+                             session.getTickCount() * GameSession.TICK_MILLIS,
+                             session.getLogic().getGhostsEaten(), System.currentTimeMillis());
+    }
+
+    /**
+     * getter para o score
+     * @return score final
+     */
+    public int getScore(){
+        return _score;
+    }
+
+    /**
+     * getter para o level alcancado
+     * @return level em que o jogo terminou
+     */
+    public int getLevelReached(){
+        return _levelReached;
+    }
+
+    /**
+     * getter para a duracao
+     * @return duracao em milissegundos de jogo
+     */
+    public long getDurationMillis(){
+        return _durationMillis;
+    }
+
+    /**
+     * getter para os fantasmas comidos
+     * @return numero de fantasmas comidos
+     */
+    public int getGhostsEaten(){
+        return _ghostsEaten;
+    }
+
+    /**
+     * getter para o momento do jogo
+     * @return momento em que o jogo terminou, em System.currentTimeMillis
+     */
+    public long getTimeMillis(){
+        return _timeMillis;
+    }
+
+    @Override
+    public String toString(){
+        return "[score " + _score + ", level " + _levelReached + ", " + _durationMillis / 1000 + " s, ghosts eaten "
+               + _ghostsEaten + "]";
+    }
+}
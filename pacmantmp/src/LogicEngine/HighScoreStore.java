@@ -0,0 +1,339 @@
+package LogicEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * historico local de jogos e recordes: cada jogo terminado vira um registro
+ * de tamanho fixo acrescentado ao fim de um arquivo mapeado em memoria, com
+ * um CRC32 no fim de cada registro. Ao abrir, o arquivo e lido ate o
+ * primeiro registro invalido (um jogo cuja gravacao foi interrompida) e o
+ * resto e zerado, de forma que um arquivo cortado por uma queda nunca e
+ * lido pela metade. Os melhores jogos ficam em um vetor ordenado de tamanho
+ * fixo, trocado inteiro a cada recorde, e as consultas nao dependem do
+ * tamanho do historico. record atualiza a memoria na hora e deixa a
+ * gravacao para uma thread propria, sem bloquear quem chama
+ * <pre>
+ * int magic, short versao, short tamanho do registro
+ * repetido: long momento, int score, int level, long duracao,
+ * int fantasmas comidos, int CRC32 dos 28 bytes anteriores
+ * </pre>
+ * @author matheus
+ */
+public class HighScoreStore implements Closeable {
+    /**
+     * extensao dos arquivos de recordes
+     */
+    public static final String EXTENSION = ".pms";
+
+    /**
+     * quantidade de recordes guardados caso nenhuma seja definida
+     */
+    public static final int DEFAULT_TOP = 10;
+
+    static final int MAGIC = 0x504D5353;
+    static final short VERSION = 1;
+
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_BYTES = 32;
+    private static final int CHECKED_BYTES = RECORD_BYTES - 4;
+
+    /**
+     * quanto o mapeamento cresce quando enche
+     */
+    private static final int MAP_GROWTH = RECORD_BYTES * 2048;
+
+    private final FileChannel _channel;
+    private MappedByteBuffer _map;
+    private long _end;
+
+    private final CRC32 _crc = new CRC32();
+    private final byte[] _record = new byte[CHECKED_BYTES];
+
+    private final int _topSize;
+    private volatile HighScore[] _top = new HighScore[0];
+    private long _gamesPlayed = 0;
+    private long _totalPlayMillis = 0;
+    private long _totalGhostsEaten = 0;
+
+    private final ExecutorService _writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pacman-highscores");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile IOException _failure;
+    private boolean _closed = false;
+
+    private HighScoreStore(FileChannel channel, int topSize){
+        _channel = channel;
+        _topSize = topSize;
+    }
+
+    /**
+     * abre (ou cria) um arquivo de recordes, recuperando o que foi gravado
+     * por inteiro antes de uma queda
+     * @param path arquivo de recordes
+     * @param topSize quantos recordes manter em memoria
+     * @return historico aberto
+     * @throws IOException caso o arquivo nao possa ser aberto ou nao seja um
+     * arquivo de recordes
+     */
+    public static HighScoreStore open(Path path, int topSize) throws IOException{
+        if (topSize < 1){
+            throw new IllegalArgumentException("top size must be positive");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        HighScoreStore store = new HighScoreStore(channel, topSize);
+        try {
+            store.recover();
+        } catch (IOException | RuntimeException e){
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /**
+     * le os registros validos, monta os recordes e zera o que vem depois
+     * do ultimo registro valido
+     */
+    private void recover() throws IOException{
+        long size = _channel.size();
+        boolean empty = size == 0;
+        _map = _channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize(Math.max(size, HEADER_BYTES)));
+
+        if (empty){
+            _map.putInt(0, MAGIC);
+            _map.putShort(4, VERSION);
+            _map.putShort(6, (short) RECORD_BYTES);
+            _map.force();
+        } else if (size < HEADER_BYTES || _map.getInt(0) != MAGIC){
+            throw new IOException("not a high score file");
+        } else if (_map.getShort(4) != VERSION || _map.getShort(6) != RECORD_BYTES){
+            throw new IOException("unsupported high score file version " + _map.getShort(4));
+        }
+
+        _end = HEADER_BYTES;
+        while (_end + RECORD_BYTES <= _map.capacity()){
+            HighScore score = read((int) _end);
+            if (score == null){
+                break;
+            }
+            add(score);
+            _end += RECORD_BYTES;
+        }
+        boolean dirty = false;
+        for (int i = (int) _end; i < _map.capacity(); i++){
+            if (_map.get(i) != 0){
+                _map.put(i, (byte) 0);
+                dirty = true;
+            }
+        }
+        if (dirty){
+            _map.force();
+        }
+    }
+
+    /**
+     * tamanho do mapeamento para guardar ao menos bytes bytes, em multiplos
+     * de MAP_GROWTH alem do cabecalho
+     */
+    private static long mappedSize(long bytes){
+        long records = Math.max(1, bytes - HEADER_BYTES);
+        return HEADER_BYTES + (records + MAP_GROWTH - 1) / MAP_GROWTH * MAP_GROWTH;
+    }
+
+    /**
+     * le um registro
+     * @return registro, ou null se o CRC nao bater
+     */
+    private HighScore read(int offset){
+        for (int i = 0; i < CHECKED_BYTES; i++){
+            _record[i] = _map.get(offset + i);
+        }
+        _crc.reset();
+        _crc.update(_record, 0, CHECKED_BYTES);
+        if ((int) _crc.getValue() != _map.getInt(offset + CHECKED_BYTES)){
+            return null;
+        }
+        long time = _map.getLong(offset);
+        int score = _map.getInt(offset + 8);
+        int level = _map.getInt(offset + 12);
+        long duration = _map.getLong(offset + 16);
+        int ghostsEaten = _map.getInt(offset + 24);
+        return new HighScore(score, level, duration, ghostsEaten, time);
+    }
+
+    /**
+     * grava um registro no fim do arquivo, na thread de gravacao
+     */
+    private void append(HighScore score) throws IOException{
+        if (_end + RECORD_BYTES > _map.capacity()){
+            _map.force();
+            _map = _channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize(_end + RECORD_BYTES));
+        }
+        int offset = (int) _end;
+        _map.putLong(offset, score.getTimeMillis());
+        _map.putInt(offset + 8, score.getScore());
+        _map.putInt(offset + 12, score.getLevelReached());
+        _map.putLong(offset + 16, score.getDurationMillis());
+        _map.putInt(offset + 24, score.getGhostsEaten());
+        for (int i = 0; i < CHECKED_BYTES; i++){
+            _record[i] = _map.get(offset + i);
+        }
+        _crc.reset();
+        _crc.update(_record, 0, CHECKED_BYTES);
+        _map.putInt(offset + CHECKED_BYTES, (int) _crc.getValue());
+        _map.force();
+        _end += RECORD_BYTES;
+    }
+
+    /**
+     * guarda o resultado de um jogo: os recordes e as estatisticas mudam na
+     * hora e o registro e gravado em segundo plano
+     * @param score resultado do jogo
+     */
+    public synchronized void record(HighScore score){
+        if (_closed){
+            throw new IllegalStateException("high score store is closed");
+        }
+        add(score);
+        _writer.execute(() -> {
+            try {
+                append(score);
+            } catch (IOException e){
+                _failure = e;
+            }
+        });
+    }
+
+    /**
+     * soma o jogo as estatisticas e o coloca entre os recordes se couber,
+     * depois dos jogos de mesmo score ja guardados
+     */
+    private synchronized void add(HighScore score){
+        _gamesPlayed++;
+        _totalPlayMillis += score.getDurationMillis();
+        _totalGhostsEaten += score.getGhostsEaten();
+
+        HighScore[] top = _top;
+        int position = top.length;
+        while (position > 0 && top[position - 1].getScore() < score.getScore()){
+            position--;
+        }
+        if (position >= _topSize){
+            return;
+        }
+        HighScore[] updated = Arrays.copyOf(top, Math.min(top.length + 1, _topSize));
+        System.arraycopy(top, position, updated, position + 1, updated.length - position - 1);
+        updated[position] = score;
+        _top = updated;
+    }
+
+    /**
+     * melhores jogos, do maior score para o menor
+     * @return lista imutavel com no maximo o numero de recordes do historico
+     */
+    public List<HighScore> getTopScores(){
+        return Collections.unmodifiableList(Arrays.asList(_top.clone()));
+    }
+
+    /**
+     * melhor score ja feito
+     * @return score, ou 0 se nenhum jogo foi guardado
+     */
+    public int getBestScore(){
+        HighScore[] top = _top;
+        return top.length == 0 ? 0 : top[0].getScore();
+    }
+
+    /**
+     * quantidade de jogos guardados
+     * @return numero de jogos
+     */
+    public synchronized long getGamesPlayed(){
+        return _gamesPlayed;
+    }
+
+    /**
+     * tempo total de jogo guardado
+     * @return soma das duracoes em milissegundos
+     */
+    public synchronized long getTotalPlayMillis(){
+        return _totalPlayMillis;
+    }
+
+    /**
+     * fantasmas comidos em todos os jogos guardados
+     * @return numero de fantasmas
+     */
+    public synchronized long getTotalGhostsEaten(){
+        return _totalGhostsEaten;
+    }
+
+    /**
+     * espera as gravacoes pendentes e fecha o arquivo; se elas nao
+     * terminarem a tempo o arquivo fica aberto para a thread de gravacao
+     * @throws IOException caso alguma gravacao tenha falhado ou nao tenha
+     * terminado
+     */
+    @Override
+    public void close() throws IOException{
+        synchronized (this){
+            if (_closed){
+                return;
+            }
+            _closed = true;
+            _writer.shutdown();
+        }
+        boolean terminated;
+        try {
+            terminated = _writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            terminated = false;
+        }
+        if (!terminated){
+            throw new IOException("pending high score writes did not finish");
+        }
+        _map = null;
+        _channel.close();
+        if (_failure != null){
+            throw _failure;
+        }
+    }
+
+    /**
+     * mostra os recordes e as estatisticas de um arquivo
+     * uso: HighScoreStore recordes.pms
+     * @param args arquivo de recordes
+     * @throws IOException caso o arquivo nao possa ser lido
+     */
+    public static void main(String[] args) throws IOException{
+        if (args.length != 1){
+            System.err.println("usage: HighScoreStore <scores" + EXTENSION + ">");
+            System.exit(2);
+        }
+        try (HighScoreStore store = open(Paths.get(args[0]), DEFAULT_TOP)){
+            List<HighScore> top = store.getTopScores();
+            for (int i = 0; i < top.size(); i++){
+                System.out.println((i + 1) + ". " + top.get(i));
+            }
+            System.out.println(store.getGamesPlayed() + " games, " + store.getTotalPlayMillis() / 1000 + " s played, "
+                               + store.getTotalGhostsEaten() + " ghosts eaten");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package LogicEngine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * formato binario dos registros de partida (.pmr): cabecalho com a semente e
+ * os arquivos de level do jogo, seguido dos comandos do jogador tick a tick
+ * codificados por diferenca, ou seja, cada mudanca de comando vira um par
+ * (direcao, quantidade de ticks repetidos). Termina com um marcador de fim e
+ * o total de ticks gravados
+ * <pre>
+ * int magic, short versao, long semente
+ * short quantidade de levels, para cada um: short tamanho + bytes UTF-8
+ * (nenhum level = tabuleiro padrao)
+ * repetido: byte direcao + 1 (0 = parado), varint ticks
+ * byte END, long total de ticks
+ * </pre>
+ * @author matheus
+ */
+final class InputLog {
+    /**
+     * extensao dos registros de partida
+     */
+    static final String EXTENSION = ".pmr";
+
+    static final int MAGIC = 0x504D5250;
+    static final short VERSION = 4;
+
+    static final int END = 0xFF;
+
+    /**
+     * maior quantidade de bytes de uma corrida: direcao e varint de um long
+     */
+    static final int MAX_RUN_BYTES = 1 + 10;
+
+    private InputLog(){
+    }
+
+    /**
+     * escreve um inteiro sem sinal em blocos de 7 bits
+     * @param buffer destino
+     * @param value valor nao negativo
+     */
+    static void putVarLong(ByteBuffer buffer, long value){
+        while ((value & ~0x7FL) != 0){
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * le um inteiro escrito por putVarLong
+     * @param buffer origem
+     * @return valor lido
+     * @throws IOException caso o valor esteja corrompido
+     */
+    static long getVarLong(ByteBuffer buffer) throws IOException{
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7){
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0){
+                return value;
+            }
+        }
+        throw new IOException("corrupted input log: run length too long");
+    }
+}
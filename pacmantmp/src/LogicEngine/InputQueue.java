@@ -0,0 +1,115 @@
+package LogicEngine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * fila circular sem travas de eventos de direcao, para exatamente um produtor
+ * (a thread da interface, que recebe as teclas) e um consumidor (a thread que
+ * roda os ticks). Cada evento e um long com a direcao, se a tecla foi
+ * apertada ou solta e o momento do evento, de forma que nada e alocado no
+ * caminho da entrada
+ * @author matheus
+ */
+public class InputQueue {
+    /**
+     * valor devolvido por poll quando a fila esta vazia
+     */
+    public static final long EMPTY = -1;
+
+    private static final int DIRECTION_MASK = 0x7;
+    private static final int PRESSED_FLAG = 0x8;
+    private static final int TIME_SHIFT = 4;
+
+    private final long[] _events;
+    private final int _mask;
+
+    private final AtomicLong _head = new AtomicLong();
+    private final AtomicLong _tail = new AtomicLong();
+
+    private long _cachedHead = 0;
+    private long _cachedTail = 0;
+
+    /**
+     * Construtor
+     * @param capacity quantidade minima de eventos pendentes suportada,
+     * arredondada para uma potencia de 2
+     */
+    public InputQueue(int capacity){
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        _events = new long[size];
+        _mask = size - 1;
+    }
+
+    /**
+     * monta um evento
+     * @param direction codigo de Direction
+     * @param pressed true se a tecla foi apertada, false se foi solta
+     * @param timeMillis momento do evento em milissegundos
+     * @return evento codificado
+     */
+    public static long encode(int direction, boolean pressed, long timeMillis){
+        return (timeMillis << TIME_SHIFT) | (pressed ? PRESSED_FLAG : 0) | direction;
+    }
+
+    /**
+     * direcao do evento
+     * @param event evento codificado
+     * @return codigo de Direction
+     */
+    public static int direction(long event){
+        return (int) (event & DIRECTION_MASK);
+    }
+
+    /**
+     * indica se o evento e de tecla apertada
+     * @param event evento codificado
+     * @return true se a tecla foi apertada
+     */
+    public static boolean pressed(long event){
+        return (event & PRESSED_FLAG) != 0;
+    }
+
+    /**
+     * momento do evento
+     * @param event evento codificado
+     * @return momento em milissegundos
+     */
+    public static long timeMillis(long event){
+        return event >>> TIME_SHIFT;
+    }
+
+    /**
+     * coloca um evento na fila, chamado somente pelo produtor
+     * @param event evento codificado
+     * @return false caso a fila esteja cheia e o evento tenha sido descartado
+     */
+    public boolean offer(long event){
+        long tail = _tail.get();
+        if (tail - _cachedHead >= _events.length){
+            _cachedHead = _head.get();
+            if (tail - _cachedHead >= _events.length){
+                return false;
+            }
+        }
+        _events[(int) tail & _mask] = event;
+        _tail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * tira o evento mais antigo da fila, chamado somente pelo consumidor
+     * @return evento codificado ou EMPTY caso a fila esteja vazia
+     */
+    public long poll(){
+        long head = _head.get();
+        if (head >= _cachedTail){
+            _cachedTail = _tail.get();
+            if (head >= _cachedTail){
+                return EMPTY;
+            }
+        }
+        long event = _events[(int) head & _mask];
+        _head.lazySet(head + 1);
+        return event;
+    }
+}
@@ -0,0 +1,150 @@
+package LogicEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * fonte de comandos que repassa os comandos de outra fonte e grava cada um
+ * deles no registro da partida (ver InputLog), por meio de um buffer que so
+ * e escrito no arquivo quando enche. Junto com a semente e os levels, o
+ * registro e suficiente para reproduzir a partida com InputReplay. Se o
+ * arquivo nao puder ser escrito (disco cheio, por exemplo) a gravacao para,
+ * a partida continua e o erro e lancado por close
+ * @author matheus
+ */
+public class InputRecorder implements InputSource, Closeable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InputSource _source;
+    private final FileChannel _channel;
+    private final ByteBuffer _buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private int _runDirection = Direction.NONE;
+    private long _runLength = 0;
+    private long _ticks = 0;
+    private boolean _closed = false;
+    private IOException _failure;
+
+    /**
+     * Construtor, cria (ou sobrescreve) o arquivo e grava o cabecalho
+     * @param path arquivo do registro
+     * @param seed semente da sessao gravada
+     * @param levelFiles arquivos de level da sessao, vazio para o tabuleiro
+     * padrao
+     * @param source fonte dos comandos gravados
+     * @throws IOException caso o arquivo nao possa ser criado
+     */
+    public InputRecorder(Path path, long seed, List<String> levelFiles, InputSource source) throws IOException{
+        _source = source;
+        _channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                    StandardOpenOption.TRUNCATE_EXISTING);
+
+        _buffer.putInt(InputLog.MAGIC);
+        _buffer.putShort(InputLog.VERSION);
+        _buffer.putLong(seed);
+        _buffer.putShort((short) levelFiles.size());
+        for (String levelFile : levelFiles){
+            byte[] bytes = levelFile.getBytes(StandardCharsets.UTF_8);
+            ensureSpace(2 + bytes.length);
+            _buffer.putShort((short) bytes.length);
+            _buffer.put(bytes);
+        }
+    }
+
+    @Override
+    public int nextDirection(){
+        int direction = _source.nextDirection();
+        if (_closed){
+            return direction;
+        }
+
+        if (direction != _runDirection && _runLength > 0){
+            writeRun();
+        }
+        _runDirection = direction;
+        _runLength++;
+        _ticks++;
+        return direction;
+    }
+
+    @Override
+    public void moved(int direction){
+        _source.moved(direction);
+    }
+
+    /**
+     * quantidade de ticks gravados
+     * @return numero de ticks
+     */
+    public long getTickCount(){
+        return _ticks;
+    }
+
+    /**
+     * grava a corrida atual, parando a gravacao caso o arquivo nao possa
+     * ser escrito
+     */
+    private void writeRun(){
+        try {
+            ensureSpace(InputLog.MAX_RUN_BYTES);
+        } catch (IOException e){
+            _failure = e;
+            _closed = true;
+            return;
+        }
+        _buffer.put((byte) (_runDirection + 1));
+        InputLog.putVarLong(_buffer, _runLength);
+        _runLength = 0;
+    }
+
+    /**
+     * esvazia o buffer no arquivo caso nao caibam mais bytes nele
+     */
+    private void ensureSpace(int bytes) throws IOException{
+        if (_buffer.remaining() < bytes){
+            flush();
+        }
+    }
+
+    private void flush() throws IOException{
+        _buffer.flip();
+        while (_buffer.hasRemaining()){
+            _channel.write(_buffer);
+        }
+        _buffer.clear();
+    }
+
+    /**
+     * grava a ultima corrida e o marcador de fim e fecha o arquivo, os
+     * comandos seguintes continuam sendo repassados mas nao sao gravados
+     * @throws IOException caso o arquivo nao possa ser escrito, agora ou
+     * durante a partida
+     */
+    @Override
+    public void close() throws IOException{
+        if (!_channel.isOpen()){
+            return;
+        }
+        try {
+            if (!_closed && _runLength > 0){
+                writeRun();
+            }
+            _closed = true;
+            if (_failure != null){
+                throw _failure;
+            }
+            ensureSpace(1 + 8);
+            _buffer.put((byte) InputLog.END);
+            _buffer.putLong(_ticks);
+            flush();
+        } finally {
+            _channel.close();
+        }
+    }
+}
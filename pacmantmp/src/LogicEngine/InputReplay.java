@@ -0,0 +1,195 @@
+package LogicEngine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * fonte de comandos que reproduz um registro gravado por InputRecorder, tick
+ * a tick. Com a mesma semente e os mesmos levels, a sessao alimentada por
+ * ela refaz exatamente a partida gravada, o que permite reproduzir bugs e
+ * recalcular scores sem a interface grafica
+ * @author matheus
+ */
+public class InputReplay implements InputSource {
+    private final long _seed;
+    private final List<String> _levelFiles;
+    private final ByteBuffer _buffer;
+
+    private int _runDirection = Direction.NONE;
+    private long _runRemaining = 0;
+    private long _ticks = 0;
+    private long _recordedTicks = -1;
+
+    /**
+     * Construtor, le o registro inteiro do arquivo
+     * @param path arquivo do registro
+     * @throws IOException caso o arquivo nao possa ser lido ou nao seja um
+     * registro de partida
+     */
+    public InputReplay(Path path) throws IOException{
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            _buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (_buffer.getInt() != InputLog.MAGIC){
+                throw new IOException(path + ": not an input log");
+            }
+            short version = _buffer.getShort();
+            if (version != InputLog.VERSION){
+                throw new IOException(path + ": unsupported input log version " + version);
+            }
+            _seed = _buffer.getLong();
+
+            int levelCount = _buffer.getShort();
+            List<String> levelFiles = new ArrayList<>(levelCount);
+            for (int i = 0; i < levelCount; i++){
+                byte[] bytes = new byte[_buffer.getShort()];
+                _buffer.get(bytes);
+                levelFiles.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            _levelFiles = Collections.unmodifiableList(levelFiles);
+        } catch (BufferUnderflowException e){
+            throw new IOException(path + ": truncated input log", e);
+        }
+        readRun();
+    }
+
+    /**
+     * getter para a semente da partida gravada
+     * @return semente da sessao
+     */
+    public long getSeed(){
+        return _seed;
+    }
+
+    /**
+     * arquivos de level da partida gravada
+     * @return caminhos dos levels, vazio para o tabuleiro padrao
+     */
+    public List<String> getLevelFiles(){
+        return _levelFiles;
+    }
+
+    @Override
+    public int nextDirection(){
+        while (_runRemaining == 0){
+            if (isFinished()){
+                return Direction.NONE;
+            }
+            readRun();
+        }
+        int direction = _runDirection;
+        _runRemaining--;
+        _ticks++;
+        if (_runRemaining == 0 && _recordedTicks < 0){
+            // le ja o cabecalho da proxima corrida para que o fim do
+            // registro seja percebido logo apos o ultimo tick gravado
+            readRun();
+        }
+        return direction;
+    }
+
+    /**
+     * le a proxima corrida do registro, ou o marcador de fim
+     */
+    private void readRun(){
+        try {
+            int code = _buffer.get() & 0xFF;
+            if (code == InputLog.END){
+                _recordedTicks = _buffer.getLong();
+                return;
+            }
+            if (code > Direction.COUNT){
+                throw new IOException("corrupted input log: unknown direction " + code);
+            }
+            _runDirection = code - 1;
+            _runRemaining = InputLog.getVarLong(_buffer);
+        } catch (BufferUnderflowException e){
+            // registro sem marcador de fim (jogo interrompido): termina aqui
+            _recordedTicks = _ticks;
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * indica se todos os comandos gravados ja foram reproduzidos
+     * @return true ao chegar no fim do registro
+     */
+    public boolean isFinished(){
+        return _recordedTicks >= 0 && _runRemaining == 0;
+    }
+
+    /**
+     * quantidade de ticks ja reproduzidos
+     * @return numero de ticks
+     */
+    public long getTickCount(){
+        return _ticks;
+    }
+
+    /**
+     * quantidade de ticks gravados, conhecida ao chegar no fim do registro
+     * @return numero de ticks ou -1 caso o fim ainda nao tenha sido lido
+     */
+    public long getRecordedTickCount(){
+        return _recordedTicks;
+    }
+
+    /**
+     * refaz a partida gravada o mais rapido possivel, sem interface grafica
+     * @param path arquivo do registro
+     * @param levels cache usado para carregar os levels da partida
+     * @return resultado da partida reproduzida
+     * @throws IOException caso o registro ou algum level nao possa ser lido
+     */
+    public static SimulationResult replay(Path path, LevelCache levels) throws IOException{
+        InputReplay input = new InputReplay(path);
+
+        List<Level> sessionLevels = new ArrayList<>();
+        for (String levelFile : input.getLevelFiles()){
+            sessionLevels.add(levels.get(Paths.get(levelFile)));
+        }
+        if (sessionLevels.isEmpty()){
+            sessionLevels.add(Level.standard());
+        }
+
+        GameSession session = GameSession.newGame(sessionLevels, input.getSeed(), input);
+        while (!session.isGameOver() && !input.isFinished()){
+            session.tick();
+        }
+        return SimulationResult.of(input.getSeed(), session);
+    }
+
+    /**
+     * reproduz registros de partida e mostra o resultado de cada um
+     * uso: InputReplay partida.pmr [outra.pmr ...]
+     * @param args arquivos dos registros
+     * @throws IOException caso algum registro nao possa ser lido
+     */
+    public static void main(String[] args) throws IOException{
+        if (args.length == 0){
+            System.err.println("usage: InputReplay <game" + InputLog.EXTENSION + ">...");
+            System.exit(1);
+        }
+
+        LevelCache levels = new LevelCache();
+        for (String file : args){
+            long start = System.nanoTime();
+            SimulationResult result = replay(Paths.get(file), levels);
+            System.out.println(file + ": " + result + " in "
+                               + (System.nanoTime() - start) / 1000000 + " ms");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package LogicEngine;
+
+/**
+ * fonte dos comandos do jogador, consultada uma vez a cada tick da sessao
+ * @author matheus
+ */
+public interface InputSource {
+
+    /**
+     * fonte que nunca move o jogador
+     */
+    InputSource NONE = () -> Direction.NONE;
+
+    /**
+     * direcao em que o jogador quer se mover neste tick
+     * @return codigo de Direction, ou Direction.NONE para ficar parado
+     */
+    int nextDirection();
+
+    /**
+     * avisa que o jogador andou uma casa, usado por fontes que guardam uma
+     * curva pedida ate que ela seja feita
+     * @param direction direcao em que o jogador andou
+     */
+    default void moved(int direction){
+    }
+}
@@ -0,0 +1,170 @@
+package LogicEngine;
+
+import java.util.Arrays;
+
+/**
+ * histograma de duracoes no estilo do HdrHistogram: os baldes sao lineares
+ * dentro de cada potencia de 2 (SUB_BUCKETS baldes por potencia), o que
+ * mantem o erro relativo abaixo de ~3% em qualquer escala com um vetor fixo
+ * de contadores. Registrar um valor e so um calculo de indice e um
+ * incremento, sem alocacao. Nao e sincronizado: deve ser escrito por uma
+ * unica thread
+ * @author matheus
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * maior deslocamento representado, valores acima de 2^(MAX_SHIFT + 6)
+     * (cerca de 36 minutos em nanossegundos) caem no ultimo balde
+     */
+    private static final int MAX_SHIFT = 35;
+    private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKETS;
+
+    private final long[] _counts = new long[BUCKETS];
+    private long _count;
+    private long _sum;
+    private long _min = Long.MAX_VALUE;
+    private long _max;
+
+    /**
+     * indice do balde de um valor
+     */
+    private static int bucketOf(long value){
+        if (value < SUB_BUCKETS){
+            return (int) Math.max(value, 0);
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        if (shift > MAX_SHIFT){
+            return BUCKETS - 1;
+        }
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * menor valor que cai no balde
+     */
+    private static long lowestValueOf(int bucket){
+        if (bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * valor representativo do balde (seu ponto medio)
+     */
+    private static long middleValueOf(int bucket){
+        if (bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return lowestValueOf(bucket) + ((1L << shift) >>> 1);
+    }
+
+    /**
+     * registra um valor
+     * @param value valor, normalmente uma duracao em nanossegundos
+     */
+    public void record(long value){
+        _counts[bucketOf(value)]++;
+        _count++;
+        _sum += value;
+        if (value < _min){
+            _min = value;
+        }
+        if (value > _max){
+            _max = value;
+        }
+    }
+
+    /**
+     * soma os valores de outro histograma a este
+     * @param other histograma somado
+     */
+    public void add(LatencyHistogram other){
+        for (int i = 0; i < BUCKETS; i++){
+            _counts[i] += other._counts[i];
+        }
+        _count += other._count;
+        _sum += other._sum;
+        _min = Math.min(_min, other._min);
+        _max = Math.max(_max, other._max);
+    }
+
+    /**
+     * zera o histograma
+     */
+    public void reset(){
+        Arrays.fill(_counts, 0);
+        _count = 0;
+        _sum = 0;
+        _min = Long.MAX_VALUE;
+        _max = 0;
+    }
+
+    /**
+     * copia independente do histograma
+     * @return copia
+     */
+    public LatencyHistogram copy(){
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * quantidade de valores registrados
+     * @return numero de valores
+     */
+    public long getCount(){
+        return _count;
+    }
+
+    /**
+     * menor valor registrado
+     * @return menor valor, ou 0 se o histograma estiver vazio
+     */
+    public long getMin(){
+        return _count == 0 ? 0 : _min;
+    }
+
+    /**
+     * maior valor registrado
+     * @return maior valor
+     */
+    public long getMax(){
+        return _max;
+    }
+
+    /**
+     * media dos valores registrados
+     * @return media, ou 0 se o histograma estiver vazio
+     */
+    public double getMean(){
+        return _count == 0 ? 0 : (double) _sum / _count;
+    }
+
+    /**
+     * valor abaixo do qual esta a porcentagem pedida dos valores
+     * @param percentile porcentagem, entre 0 e 100
+     * @return valor aproximado do percentil, ou 0 se o histograma estiver
+     * vazio
+     */
+    public long getPercentile(double percentile){
+        if (_count == 0){
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * _count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++){
+            seen += _counts[i];
+            if (seen >= target){
+                return Math.min(middleValueOf(i), _max);
+            }
+        }
+        return _max;
+    }
+}
@@ -0,0 +1,205 @@
+package LogicEngine;
+
+import SystemElements.Board;
+
+/**
+ * definicao imutavel de um level: camadas iniciais do tabuleiro (paredes,
+ * pacdots e pilulas), posicoes iniciais do jogador e dos fantasmas, e as
+ * estruturas derivadas do tabuleiro (tabela de navegacao e grade de
+ * posicoes), calculadas uma unica vez e compartilhadas por todos os jogos
+ * que usam o level
+ * @author matheus
+ */
+public class Level {
+    private final String _name;
+    private final BoardLayers _layers;
+
+    private final int _playerStartX;
+    private final int _playerStartY;
+    private final int _ghostStartX;
+    private final int _ghostStartY;
+
+    private NavigationTable _navigation;
+    private boolean _navigationReady;
+    private PositionGrid _positions;
+
+    /**
+     * Construtor
+     * @param name nome do level
+     * @param layers camadas iniciais, passam a pertencer ao level
+     * @param playerStartX linha inicial do jogador
+     * @param playerStartY coluna inicial do jogador
+     * @param ghostStartX linha inicial dos fantasmas
+     * @param ghostStartY coluna inicial dos fantasmas (primeira casa da casa
+     * dos fantasmas)
+     */
+    public Level(String name, BoardLayers layers, int playerStartX, int playerStartY,
+                 int ghostStartX, int ghostStartY){
+        this(name, layers, playerStartX, playerStartY, ghostStartX, ghostStartY, null);
+    }
+
+    /**
+     * Construtor com a tabela de navegacao ja calculada
+     * @param navigation tabela do tabuleiro, ou null para calcular quando
+     * for usada pela primeira vez
+     */
+    Level(String name, BoardLayers layers, int playerStartX, int playerStartY,
+          int ghostStartX, int ghostStartY, NavigationTable navigation){
+        if (layers.isWall(playerStartX, playerStartY)){
+            throw new IllegalArgumentException("player start is not a valid position");
+        }
+        if (layers.isWall(ghostStartX, ghostStartY)){
+            throw new IllegalArgumentException("ghost start is not a valid position");
+        }
+
+        _name = name;
+        _layers = layers;
+        _playerStartX = playerStartX;
+        _playerStartY = playerStartY;
+        _ghostStartX = ghostStartX;
+        _ghostStartY = ghostStartY;
+        _navigation = navigation;
+        _navigationReady = navigation != null;
+    }
+
+    /**
+     * level do tabuleiro padrao, compartilhado
+     * @return level classico
+     */
+    public static Level standard(){
+        return Standard.LEVEL;
+    }
+
+    private static class Standard {
+        static final Level LEVEL = fromBoard("classic", new Board());
+    }
+
+    /**
+     * monta um level a partir de um Board, com as posicoes iniciais do jogo
+     * original e pilulas nos quatro cantos
+     * @param name nome do level
+     * @param board tabuleiro de origem
+     * @return level do tabuleiro
+     */
+    public static Level fromBoard(String name, Board board){
+        BoardLayers layers = BoardLayers.fromBoard(board);
+        int height = layers.getHeight();
+        int width = layers.getWidth();
+
+        layers.setPill(1, 1, true);
+        layers.setPill(1, width - 2, true);
+        layers.setPill(height - 2, 1, true);
+        layers.setPill(height - 2, width - 2, true);
+
+        return new Level(name, layers, 17, 9, 7, 7);
+    }
+
+    /**
+     * getter para o nome do level
+     * @return nome do level
+     */
+    public String getName(){
+        return _name;
+    }
+
+    /**
+     * getter para o numero de linhas
+     * @return numero de linhas
+     */
+    public int getHeight(){
+        return _layers.getHeight();
+    }
+
+    /**
+     * getter para o numero de colunas
+     * @return numero de colunas
+     */
+    public int getWidth(){
+        return _layers.getWidth();
+    }
+
+    /**
+     * linha inicial do jogador
+     * @return linha
+     */
+    public int getPlayerStartX(){
+        return _playerStartX;
+    }
+
+    /**
+     * coluna inicial do jogador
+     * @return coluna
+     */
+    public int getPlayerStartY(){
+        return _playerStartY;
+    }
+
+    /**
+     * linha inicial dos fantasmas
+     * @return linha
+     */
+    public int getGhostStartX(){
+        return _ghostStartX;
+    }
+
+    /**
+     * coluna inicial dos fantasmas
+     * @return coluna
+     */
+    public int getGhostStartY(){
+        return _ghostStartY;
+    }
+
+    /**
+     * camadas iniciais do level, nao devem ser alteradas
+     * @return camadas compartilhadas
+     */
+    BoardLayers layers(){
+        return _layers;
+    }
+
+    /**
+     * copia das camadas iniciais para um novo jogo
+     * @return camadas independentes
+     */
+    public BoardLayers newLayers(){
+        return _layers.copy();
+    }
+
+    /**
+     * tabela de navegacao do level, calculada na primeira chamada
+     * @return tabela compartilhada, ou null caso o tabuleiro tenha mais de
+     * NavigationTable.MAX_NODES casas validas
+     */
+    public synchronized NavigationTable getNavigation(){
+        if (!_navigationReady){
+            if (NavigationTable.fits(_layers)){
+                _navigation = new NavigationTable(_layers);
+            }
+            _navigationReady = true;
+        }
+        return _navigation;
+    }
+
+    /**
+     * grade de posicoes do level, calculada na primeira chamada
+     * @return grade compartilhada
+     */
+    public synchronized PositionGrid getPositions(){
+        if (_positions == null){
+            _positions = new PositionGrid(_layers);
+        }
+        return _positions;
+    }
+
+    /**
+     * calcula de antemao as estruturas derivadas do tabuleiro, para que a
+     * troca para este level nao tenha custo
+     * @return o proprio level
+     */
+    public Level prepare(){
+        getNavigation();
+        getPositions();
+        return this;
+    }
+}
@@ -0,0 +1,82 @@
+package LogicEngine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * cache LRU de levels carregados de arquivo, ja preparados (tabela de
+ * navegacao e grade de posicoes calculadas), de forma que trocar para um
+ * level ja visto nao leia o disco nem recalcule nada. Pode ser compartilhado
+ * entre threads
+ * @author matheus
+ */
+public class LevelCache {
+    /**
+     * quantidade padrao de levels mantidos
+     */
+    public static final int DEFAULT_CAPACITY = 8;
+
+    private final Map<Path, Level> _levels;
+
+    /**
+     * Construtor com a capacidade padrao
+     */
+    public LevelCache(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construtor
+     * @param capacity quantidade maxima de levels mantidos, o usado ha mais
+     * tempo e descartado primeiro
+     */
+    public LevelCache(final int capacity){
+        _levels = new LinkedHashMap<Path, Level>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Level> eldest){
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * level do arquivo, carregado e preparado caso nao esteja no cache
+     * @param path arquivo do level, texto ou compilado
+     * @return level pronto para uso
+     * @throws IOException caso o arquivo nao possa ser lido ou seja invalido
+     */
+    public synchronized Level get(Path path) throws IOException{
+        Path key = path.toAbsolutePath().normalize();
+        Level level = _levels.get(key);
+        if (level == null){
+            level = LevelLoader.load(key).prepare();
+            _levels.put(key, level);
+        }
+        return level;
+    }
+
+    /**
+     * descarta o level do arquivo, para que seja relido na proxima vez
+     * @param path arquivo do level
+     */
+    public synchronized void invalidate(Path path){
+        _levels.remove(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * quantidade de levels no cache
+     * @return numero de levels
+     */
+    public synchronized int size(){
+        return _levels.size();
+    }
+
+    /**
+     * esvazia o cache
+     */
+    public synchronized void clear(){
+        _levels.clear();
+    }
+}
@@ -0,0 +1,313 @@
+package LogicEngine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * leitura e escrita de levels em arquivo, em dois formatos:
+ * <p>
+ * texto (qualquer extensao): uma linha por linha do tabuleiro, linhas que
+ * comecam com ';' sao comentarios. '■', '░' ou '#' sao paredes, '.' pacdot,
+ * 'o' pilula, 'P' posicao inicial do jogador, 'G' posicao inicial dos
+ * fantasmas e espaco uma casa vazia. Linhas mais curtas sao completadas com
+ * paredes.
+ * <p>
+ * binario (extensao .pml): cabecalho, posicoes iniciais, os bitsets de
+ * paredes, pacdots e pilulas e, se o tabuleiro couber, a tabela de navegacao
+ * ja calculada. E lido com o arquivo mapeado em memoria, de forma que
+ * carregar um level compilado e so copiar os vetores
+ * @author matheus
+ */
+public class LevelLoader {
+    /**
+     * extensao dos levels compilados
+     */
+    public static final String BINARY_EXTENSION = ".pml";
+
+    private static final int MAGIC = 0x504D4C56;
+    private static final short VERSION = 1;
+
+    private static final char COMMENT = ';';
+    private static final char PACDOT = '.';
+    private static final char PILL = 'o';
+    private static final char PLAYER_START = 'P';
+    private static final char GHOST_START = 'G';
+    private static final char EMPTY = ' ';
+    private static final char WALL = '■';
+
+    private LevelLoader(){
+    }
+
+    /**
+     * carrega um level, compilado ou em texto conforme a extensao
+     * @param path arquivo do level
+     * @return level carregado
+     * @throws IOException caso o arquivo nao possa ser lido ou seja invalido
+     */
+    public static Level load(Path path) throws IOException{
+        if (path.getFileName().toString().endsWith(BINARY_EXTENSION)){
+            return readBinary(path);
+        }
+        return readText(path);
+    }
+
+    /**
+     * le um level no formato texto
+     * @param path arquivo do level
+     * @return level lido
+     * @throws IOException caso o arquivo nao possa ser lido ou seja invalido
+     */
+    public static Level readText(Path path) throws IOException{
+        return parseText(levelName(path), Files.readAllLines(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * monta um level a partir das linhas do formato texto
+     * @param name nome do level
+     * @param lines linhas do arquivo
+     * @return level lido
+     * @throws IOException caso o texto nao descreva um level valido
+     */
+    public static Level parseText(String name, List<String> lines) throws IOException{
+        List<String> rows = new ArrayList<>();
+        int width = 0;
+        for (String line : lines){
+            if (!line.isEmpty() && line.charAt(0) == COMMENT){
+                continue;
+            }
+            rows.add(line);
+            width = Math.max(width, line.length());
+        }
+        while (!rows.isEmpty() && rows.get(rows.size() - 1).trim().isEmpty()){
+            rows.remove(rows.size() - 1);
+        }
+
+        int height = rows.size();
+        if (height == 0 || width == 0){
+            throw new IOException(name + ": empty level");
+        }
+
+        int words = BoardLayers.words(height * width);
+        char[][] wallSymbols = new char[height][width];
+        BoardLayers layers = new BoardLayers(height, width, new long[words], new long[words],
+                                             new long[words], wallSymbols);
+
+        int playerX = -1;
+        int playerY = -1;
+        int ghostX = -1;
+        int ghostY = -1;
+
+        for (int i = 0; i < height; i++){
+            String row = rows.get(i);
+            for (int j = 0; j < width; j++){
+                char symbol = j < row.length() ? row.charAt(j) : WALL;
+                switch (symbol){
+                    case WALL:
+                    case '░':
+                        layers.setWall(i, j, true);
+                        wallSymbols[i][j] = symbol;
+                        break;
+                    case '#':
+                        layers.setWall(i, j, true);
+                        wallSymbols[i][j] = WALL;
+                        break;
+                    case PACDOT:
+                        layers.setPacdot(i, j, true);
+                        break;
+                    case PILL:
+                        layers.setPill(i, j, true);
+                        break;
+                    case PLAYER_START:
+                        if (playerX >= 0){
+                            throw new IOException(name + ": more than one player start");
+                        }
+                        playerX = i;
+                        playerY = j;
+                        break;
+                    case GHOST_START:
+                        if (ghostX >= 0){
+                            throw new IOException(name + ": more than one ghost start");
+                        }
+                        ghostX = i;
+                        ghostY = j;
+                        break;
+                    case EMPTY:
+                        break;
+                    default:
+                        throw new IOException(name + ": unknown symbol '" + symbol + "' at line " + (i + 1)
+                                              + ", column " + (j + 1));
+                }
+            }
+        }
+
+        if (playerX < 0){
+            throw new IOException(name + ": missing player start '" + PLAYER_START + "'");
+        }
+        if (ghostX < 0){
+            throw new IOException(name + ": missing ghost start '" + GHOST_START + "'");
+        }
+        return new Level(name, layers, playerX, playerY, ghostX, ghostY);
+    }
+
+    /**
+     * escreve o level no formato binario, incluindo a tabela de navegacao
+     * quando o tabuleiro couber nela
+     * @param level level a ser escrito
+     * @param path arquivo de destino
+     * @throws IOException caso o arquivo nao possa ser escrito
+     */
+    public static void writeBinary(Level level, Path path) throws IOException{
+        BoardLayers layers = level.layers();
+        NavigationTable navigation = level.getNavigation();
+        byte[] name = level.getName().getBytes(StandardCharsets.UTF_8);
+
+        int words = BoardLayers.words(layers.getHeight() * layers.getWidth());
+        long size = 4 + 2 + 2 + name.length + 6 * 4 + 3L * words * 8 + 1;
+        if (navigation != null){
+            size += 4 + 3L * navigation.directions().length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.putInt(layers.getHeight());
+        buffer.putInt(layers.getWidth());
+        buffer.putInt(level.getPlayerStartX());
+        buffer.putInt(level.getPlayerStartY());
+        buffer.putInt(level.getGhostStartX());
+        buffer.putInt(level.getGhostStartY());
+
+        buffer.asLongBuffer().put(layers.wallBits()).put(layers.pacdotBits()).put(layers.pillBits());
+        buffer.position(buffer.position() + 3 * words * 8);
+
+        if (navigation != null){
+            buffer.put((byte) 1);
+            buffer.putInt(navigation.nodeCount());
+            buffer.put(navigation.directions());
+            buffer.asShortBuffer().put(navigation.distances());
+            buffer.position(buffer.position() + navigation.distances().length * 2);
+        } else{
+            buffer.put((byte) 0);
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)){
+            while (buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * le um level no formato binario mapeando o arquivo em memoria
+     * @param path arquivo do level
+     * @return level lido, com a tabela de navegacao ja pronta se o arquivo
+     * a tiver
+     * @throws IOException caso o arquivo nao possa ser lido ou seja invalido
+     */
+    public static Level readBinary(Path path) throws IOException{
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(levelName(path), buffer);
+        } catch (RuntimeException e){
+            throw new IOException(path + ": corrupted level file", e);
+        }
+    }
+
+    private static Level decode(String fileName, ByteBuffer buffer) throws IOException{
+        if (buffer.getInt() != MAGIC){
+            throw new IOException(fileName + ": not a compiled level");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION){
+            throw new IOException(fileName + ": unsupported level version " + version);
+        }
+
+        byte[] nameBytes = new byte[buffer.getShort()];
+        buffer.get(nameBytes);
+        String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+        int height = buffer.getInt();
+        int width = buffer.getInt();
+        int playerX = buffer.getInt();
+        int playerY = buffer.getInt();
+        int ghostX = buffer.getInt();
+        int ghostY = buffer.getInt();
+        if (height <= 0 || width <= 0){
+            throw new IOException(fileName + ": invalid board size");
+        }
+
+        int words = BoardLayers.words(height * width);
+        long[] walls = new long[words];
+        long[] pacdots = new long[words];
+        long[] pills = new long[words];
+        buffer.asLongBuffer().get(walls).get(pacdots).get(pills);
+        buffer.position(buffer.position() + 3 * words * 8);
+
+        BoardLayers layers = new BoardLayers(height, width, walls, pacdots, pills, null);
+
+        NavigationTable navigation = null;
+        if (buffer.get() != 0){
+            int nodes = buffer.getInt();
+            if (nodes != NavigationTable.countNodes(layers)){
+                throw new IOException(fileName + ": navigation table does not match the board");
+            }
+            if (nodes > NavigationTable.MAX_NODES){
+                // tabela gravada com um limite antigo, maior: o level usa o
+                // PathfindingService em vez de manter a tabela em memoria
+                return new Level(name, layers, playerX, playerY, ghostX, ghostY, null);
+            }
+            byte[] directions = new byte[nodes * nodes];
+            short[] distances = new short[nodes * nodes];
+            buffer.get(directions);
+            buffer.asShortBuffer().get(distances);
+            navigation = new NavigationTable(layers, directions, distances);
+        }
+
+        return new Level(name, layers, playerX, playerY, ghostX, ghostY, navigation);
+    }
+
+    /**
+     * nome do level a partir do nome do arquivo, sem a extensao
+     */
+    private static String levelName(Path path){
+        String fileName = path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+    /**
+     * compila levels em texto para o formato binario
+     * uso: LevelLoader entrada.txt [saida.pml]
+     * @param args arquivo de entrada e, opcionalmente, o de saida
+     * @throws IOException caso algum arquivo nao possa ser lido ou escrito
+     */
+    public static void main(String[] args) throws IOException{
+        if (args.length < 1){
+            System.err.println("usage: LevelLoader <level.txt> [level" + BINARY_EXTENSION + "]");
+            System.exit(1);
+        }
+
+        Path input = Paths.get(args[0]);
+        Path output = args.length > 1 ? Paths.get(args[1])
+                                      : input.resolveSibling(levelName(input) + BINARY_EXTENSION);
+
+        Level level = readText(input);
+        writeBinary(level, output);
+        System.out.println(level.getName() + ": " + level.getHeight() + "x" + level.getWidth()
+                           + (level.getNavigation() != null ? ", navigation table included" : "")
+                           + " -> " + output);
+    }
+}
@@ -0,0 +1,225 @@
+package LogicEngine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * gerador de labirintos procedurais: escava um labirinto perfeito com uma
+ * busca em profundidade aleatoria (iterativa, com pilha em vetor, para
+ * aguentar tabuleiros de milhoes de casas) e depois remove becos sem saida
+ * abrindo paredes, o que cria os circuitos que os labirintos do Pacman tem.
+ * As casas ficam nas coordenadas impares, as paredes entre elas nas pares.
+ * Todas as casas recebem pacdots, com pilulas perto dos cantos e espalhadas
+ * pelo tabuleiro, os fantasmas comecam no centro e o jogador embaixo. A
+ * mesma semente sempre gera o mesmo level
+ * @author matheus
+ */
+public final class MazeGenerator {
+    /**
+     * menor altura e largura aceitas
+     */
+    public static final int MIN_SIZE = 9;
+
+    /**
+     * fracao dos becos sem saida que sao abertos, 1 remove todos
+     */
+    public static final double DEFAULT_BRAIDING = 1.0;
+
+    /**
+     * lado em casas da area que recebe uma pilula alem das dos cantos
+     */
+    private static final int PILL_SPACING = 32;
+
+    private static final int GHOST_HOUSE_HALF_WIDTH = 2;
+
+    private MazeGenerator(){
+    }
+
+    /**
+     * gera um labirinto sem becos sem saida
+     * @param height numero de linhas, arredondado para baixo para um impar
+     * @param width numero de colunas, arredondado para baixo para um impar
+     * @param seed semente do labirinto
+     * @return level gerado
+     */
+    public static Level generate(int height, int width, long seed){
+        return generate(height, width, seed, DEFAULT_BRAIDING);
+    }
+
+    /**
+     * gera um labirinto
+     * @param height numero de linhas, arredondado para baixo para um impar
+     * @param width numero de colunas, arredondado para baixo para um impar
+     * @param seed semente do labirinto
+     * @param braiding fracao dos becos sem saida abertos, entre 0 e 1
+     * @return level gerado
+     */
+    public static Level generate(int height, int width, long seed, double braiding){
+        if (height < MIN_SIZE || width < MIN_SIZE){
+            throw new IllegalArgumentException("maze must be at least " + MIN_SIZE + "x" + MIN_SIZE);
+        }
+        Random random = new Random(seed);
+        int rows = (height - 1) / 2;
+        int columns = (width - 1) / 2;
+
+        BoardLayers layers = new BoardLayers(height, width);
+        for (int i = 0; i < height; i++){
+            for (int j = 0; j < width; j++){
+                layers.setWall(i, j, true);
+            }
+        }
+
+        carve(layers, rows, columns, random);
+        braid(layers, rows, columns, braiding, random);
+
+        int ghostX = 2 * (rows / 2) + 1;
+        int ghostCenterY = 2 * (columns / 2) + 1;
+        int houseStart = Math.max(1, ghostCenterY - GHOST_HOUSE_HALF_WIDTH);
+        int houseEnd = Math.min(width - 2, ghostCenterY + GHOST_HOUSE_HALF_WIDTH);
+        for (int j = houseStart; j <= houseEnd; j++){
+            layers.setWall(ghostX, j, false);
+        }
+
+        int playerX = 2 * (rows - 1) + 1;
+        int playerY = ghostCenterY;
+
+        for (int i = 1; i < height - 1; i++){
+            for (int j = 1; j < width - 1; j++){
+                if (layers.isWalkable(i, j)){
+                    layers.setPacdot(i, j, true);
+                }
+            }
+        }
+        for (int j = houseStart; j <= houseEnd; j++){
+            layers.setPacdot(ghostX, j, false);
+        }
+        layers.setPacdot(playerX, playerY, false);
+
+        placePills(layers, rows, columns, random);
+
+        return new Level("maze-" + height + "x" + width + "-" + seed, layers, playerX, playerY, ghostX, houseStart);
+    }
+
+    /**
+     * escava o labirinto perfeito, cada casa do labirinto (i, j) fica na casa
+     * (2i + 1, 2j + 1) do tabuleiro
+     */
+    private static void carve(BoardLayers layers, int rows, int columns, Random random){
+        boolean[] visited = new boolean[rows * columns];
+        int[] stack = new int[rows * columns];
+        int[] options = new int[Direction.COUNT];
+
+        int start = random.nextInt(rows * columns);
+        visited[start] = true;
+        layers.setWall(2 * (start / columns) + 1, 2 * (start % columns) + 1, false);
+        stack[0] = start;
+        int top = 1;
+
+        while (top > 0){
+            int cell = stack[top - 1];
+            int row = cell / columns;
+            int column = cell % columns;
+
+            int found = 0;
+            for (int direction = 0; direction < Direction.COUNT; direction++){
+                int nextRow = row + Direction.DX[direction];
+                int nextColumn = column + Direction.DY[direction];
+                if (nextRow >= 0 && nextRow < rows && nextColumn >= 0 && nextColumn < columns
+                        && !visited[nextRow * columns + nextColumn]){
+                    options[found++] = direction;
+                }
+            }
+            if (found == 0){
+                top--;
+                continue;
+            }
+
+            int direction = options[random.nextInt(found)];
+            int next = (row + Direction.DX[direction]) * columns + column + Direction.DY[direction];
+            visited[next] = true;
+            layers.setWall(2 * row + 1 + Direction.DX[direction], 2 * column + 1 + Direction.DY[direction], false);
+            layers.setWall(2 * (next / columns) + 1, 2 * (next % columns) + 1, false);
+            stack[top++] = next;
+        }
+    }
+
+    /**
+     * abre uma parede de parte dos becos sem saida, ligando-os a uma casa
+     * vizinha com que ainda nao se comunicam
+     */
+    private static void braid(BoardLayers layers, int rows, int columns, double braiding, Random random){
+        int[] options = new int[Direction.COUNT];
+        for (int row = 0; row < rows; row++){
+            for (int column = 0; column < columns; column++){
+                int x = 2 * row + 1;
+                int y = 2 * column + 1;
+                int closed = 0;
+                int open = 0;
+                for (int direction = 0; direction < Direction.COUNT; direction++){
+                    int nextRow = row + Direction.DX[direction];
+                    int nextColumn = column + Direction.DY[direction];
+                    if (nextRow < 0 || nextRow >= rows || nextColumn < 0 || nextColumn >= columns){
+                        continue;
+                    }
+                    if (layers.isWalkable(x + Direction.DX[direction], y + Direction.DY[direction])){
+                        open++;
+                    } else{
+                        options[closed++] = direction;
+                    }
+                }
+                if (open == 1 && closed > 0 && random.nextDouble() < braiding){
+                    int direction = options[random.nextInt(closed)];
+                    layers.setWall(x + Direction.DX[direction], y + Direction.DY[direction], false);
+                }
+            }
+        }
+    }
+
+    /**
+     * coloca pilulas nas casas mais proximas dos quatro cantos e uma em uma
+     * casa aleatoria de cada area de PILL_SPACING casas de lado
+     */
+    private static void placePills(BoardLayers layers, int rows, int columns, Random random){
+        int[][] corners = {{0, 0}, {0, columns - 1}, {rows - 1, 0}, {rows - 1, columns - 1}};
+        for (int[] corner : corners){
+            setPill(layers, 2 * corner[0] + 1, 2 * corner[1] + 1);
+        }
+
+        int cellsPerArea = PILL_SPACING / 2;
+        if (rows < 2 * cellsPerArea || columns < 2 * cellsPerArea){
+            return;
+        }
+        for (int areaRow = 0; areaRow < rows; areaRow += cellsPerArea){
+            for (int areaColumn = 0; areaColumn < columns; areaColumn += cellsPerArea){
+                int row = areaRow + random.nextInt(Math.min(cellsPerArea, rows - areaRow));
+                int column = areaColumn + random.nextInt(Math.min(cellsPerArea, columns - areaColumn));
+                setPill(layers, 2 * row + 1, 2 * column + 1);
+            }
+        }
+    }
+
+    private static void setPill(BoardLayers layers, int x, int y){
+        if (layers.hasPacdot(x, y)){
+            layers.setPacdot(x, y, false);
+            layers.setPill(x, y, true);
+        }
+    }
+
+    /**
+     * gera um labirinto e o grava como level compilado (.pml)
+     * @param args altura, largura, semente e arquivo de saida
+     * @throws IOException caso o arquivo nao possa ser escrito
+     */
+    public static void main(String[] args) throws IOException{
+        if (args.length != 4){
+            System.err.println("usage: MazeGenerator <height> <width> <seed> <level" + LevelLoader.BINARY_EXTENSION + ">");
+            System.exit(2);
+        }
+        Level level = generate(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Long.parseLong(args[2]));
+        Path output = Paths.get(args[3]);
+        LevelLoader.writeBinary(level, output);
+        System.out.println("wrote " + level.getName() + " to " + output);
+    }
+}
@@ -0,0 +1,215 @@
+package LogicEngine;
+
+import java.util.Arrays;
+
+/**
+ * tabela de navegacao pre-calculada para um tabuleiro estatico, para cada par
+ * de casas validas guarda a distancia e a direcao do primeiro passo do menor
+ * caminho, de forma que guiar um fantasma vira uma consulta O(1)
+ * @author matheus
+ */
+public class NavigationTable {
+    /**
+     * maior quantidade de casas validas para a qual a tabela e montada, a
+     * tabela cresce com o quadrado do numero de casas (3 bytes por par), entao
+     * no limite ocupa 3 MB; o LevelCache guarda varios levels com suas
+     * tabelas, e tabuleiros maiores usam o PathfindingService
+     */
+    public static final int MAX_NODES = 1024;
+
+    private final int _height;
+    private final int _width;
+
+    private final int _nodeCount;
+    private final int[] _cellToNode;
+
+    private final byte[] _nextDirection;
+    private final short[] _distance;
+
+    /**
+     * Construtor, roda uma busca em largura a partir de cada casa valida
+     * @param layers camadas do tabuleiro
+     */
+    public NavigationTable(BoardLayers layers){
+        _height = layers.getHeight();
+        _width = layers.getWidth();
+        _cellToNode = numberNodes(layers);
+        _nodeCount = countNodes(layers);
+
+        _nextDirection = new byte[_nodeCount * _nodeCount];
+        _distance = new short[_nodeCount * _nodeCount];
+        Arrays.fill(_nextDirection, (byte) Direction.NONE);
+        Arrays.fill(_distance, (short) -1);
+
+        int[] queue = new int[_height * _width];
+        for (int cell = 0; cell < _cellToNode.length; cell++){
+            if (_cellToNode[cell] >= 0){
+                breadthFirstFrom(cell, queue);
+            }
+        }
+    }
+
+    /**
+     * Construtor a partir de uma tabela ja calculada, lida de um level
+     * compilado
+     * @param layers camadas do tabuleiro para o qual a tabela foi calculada
+     * @param nextDirection direcoes, indexadas por [alvo * nos + origem]
+     * @param distance distancias, indexadas da mesma forma
+     */
+    NavigationTable(BoardLayers layers, byte[] nextDirection, short[] distance){
+        _height = layers.getHeight();
+        _width = layers.getWidth();
+        _cellToNode = numberNodes(layers);
+        _nodeCount = countNodes(layers);
+
+        if (nextDirection.length != _nodeCount * _nodeCount || distance.length != nextDirection.length){
+            throw new IllegalArgumentException("navigation table does not match the board");
+        }
+        _nextDirection = nextDirection;
+        _distance = distance;
+    }
+
+    /**
+     * numera as casas validas em ordem de linha
+     */
+    private static int[] numberNodes(BoardLayers layers){
+        int height = layers.getHeight();
+        int width = layers.getWidth();
+        int[] cellToNode = new int[height * width];
+        Arrays.fill(cellToNode, -1);
+
+        int nodes = 0;
+        for (int i = 0; i < height; i++){
+            for (int j = 0; j < width; j++){
+                if (layers.isWalkable(i, j)){
+                    cellToNode[i * width + j] = nodes++;
+                }
+            }
+        }
+        return cellToNode;
+    }
+
+    /**
+     * quantidade de casas validas do tabuleiro
+     * @param layers camadas do tabuleiro
+     * @return numero de nos da tabela
+     */
+    public static int countNodes(BoardLayers layers){
+        int nodes = 0;
+        for (int i = 0; i < layers.getHeight(); i++){
+            for (int j = 0; j < layers.getWidth(); j++){
+                if (layers.isWalkable(i, j)){
+                    nodes++;
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * indica se o tabuleiro e pequeno o suficiente para ter uma tabela
+     * @param layers camadas do tabuleiro
+     * @return true se o numero de casas validas nao passa de MAX_NODES
+     */
+    public static boolean fits(BoardLayers layers){
+        return countNodes(layers) <= MAX_NODES;
+    }
+
+    /**
+     * quantidade de nos da tabela
+     * @return numero de casas validas
+     */
+    public int nodeCount(){
+        return _nodeCount;
+    }
+
+    /**
+     * direcoes da tabela, compartilhadas, usadas na serializacao
+     * @return vetor de direcoes
+     */
+    byte[] directions(){
+        return _nextDirection;
+    }
+
+    /**
+     * distancias da tabela, compartilhadas, usadas na serializacao
+     * @return vetor de distancias
+     */
+    short[] distances(){
+        return _distance;
+    }
+
+    /**
+     * preenche a linha da tabela referente ao alvo, cada casa alcancada
+     * guarda o passo que a leva de volta a casa de onde foi descoberta
+     * @param targetCell indice da casa alvo
+     * @param queue fila reaproveitada entre as buscas
+     */
+    private void breadthFirstFrom(int targetCell, int[] queue){
+        int offset = _cellToNode[targetCell] * _nodeCount;
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = targetCell;
+        _distance[offset + _cellToNode[targetCell]] = 0;
+
+        while (head < tail){
+            int cell = queue[head++];
+            int x = cell / _width;
+            int y = cell % _width;
+            short nextDistance = (short) (_distance[offset + _cellToNode[cell]] + 1);
+
+            for (int direction = 0; direction < Direction.COUNT; direction++){
+                int nx = x + Direction.DX[direction];
+                int ny = y + Direction.DY[direction];
+                if (nx < 0 || ny < 0 || nx >= _height || ny >= _width){
+                    continue;
+                }
+
+                int neighbourNode = _cellToNode[nx * _width + ny];
+                if (neighbourNode < 0 || _distance[offset + neighbourNode] >= 0){
+                    continue;
+                }
+
+                _distance[offset + neighbourNode] = nextDistance;
+                _nextDirection[offset + neighbourNode] = (byte) Direction.opposite(direction);
+                queue[tail++] = nx * _width + ny;
+            }
+        }
+    }
+
+    /**
+     * direcao do primeiro passo do menor caminho entre duas casas
+     * @param fromX linha de origem
+     * @param fromY coluna de origem
+     * @param toX linha de destino
+     * @param toY coluna de destino
+     * @return direcao a ser tomada, ou Direction.NONE caso nao exista caminho
+     * ou as casas sejam iguais
+     */
+    public int nextDirection(int fromX, int fromY, int toX, int toY){
+        int from = _cellToNode[fromX * _width + fromY];
+        int to = _cellToNode[toX * _width + toY];
+        if (from < 0 || to < 0){
+            return Direction.NONE;
+        }
+        return _nextDirection[to * _nodeCount + from];
+    }
+
+    /**
+     * distancia do menor caminho entre duas casas
+     * @param fromX linha de origem
+     * @param fromY coluna de origem
+     * @param toX linha de destino
+     * @param toY coluna de destino
+     * @return numero de passos, ou -1 caso nao exista caminho
+     */
+    public int distance(int fromX, int fromY, int toX, int toY){
+        int from = _cellToNode[fromX * _width + fromY];
+        int to = _cellToNode[toX * _width + toY];
+        if (from < 0 || to < 0){
+            return -1;
+        }
+        return _distance[to * _nodeCount + from];
+    }
+}
@@ -0,0 +1,305 @@
+package LogicEngine;
+
+import java.util.Arrays;
+
+/**
+ * indice de ocupacao do tabuleiro: para cada casa, a lista dos inimigos que
+ * estao nela (listas encadeadas intrusivas guardadas em vetores de int, sem
+ * alocar nada por movimento) e a pilula da casa, se houver. Os inimigos sao
+ * identificados pelo seu indice (slot) na lista de inimigos da GameLogic.
+ * Tambem guarda a casa anterior de cada inimigo, para os testes de colisao
+ * que consideram o caminho percorrido e nao so a posicao final
+ * @author matheus
+ */
+public class OccupancyIndex {
+    /**
+     * valor usado para "nenhum inimigo" e "nenhuma casa"
+     */
+    public static final int NONE = -1;
+
+    private final int _width;
+
+    private int[] _firstAtCell;
+    private boolean _headsShared = false;
+    private int[] _pillAtCell;
+    private boolean _pillsShared = false;
+    private int[] _sparePills;
+
+    private int[] _next;
+    private int[] _previous;
+    private int[] _cell;
+    private int[] _lastCell;
+
+    /**
+     * Construtor
+     * @param height numero de linhas do tabuleiro
+     * @param width numero de colunas do tabuleiro
+     * @param capacity quantidade inicial de inimigos suportada, cresce se
+     * necessario
+     */
+    public OccupancyIndex(int height, int width, int capacity){
+        _width = width;
+        _firstAtCell = new int[height * width];
+        _pillAtCell = new int[height * width];
+        Arrays.fill(_firstAtCell, NONE);
+        Arrays.fill(_pillAtCell, NONE);
+
+        capacity = Math.max(capacity, 4);
+        _next = new int[capacity];
+        _previous = new int[capacity];
+        _cell = new int[capacity];
+        _lastCell = new int[capacity];
+        Arrays.fill(_cell, NONE);
+    }
+
+    private OccupancyIndex(OccupancyIndex source){
+        _width = source._width;
+        _firstAtCell = source._firstAtCell;
+        _headsShared = source._headsShared = true;
+        _pillAtCell = source._pillAtCell;
+        _pillsShared = source._pillsShared = true;
+        _next = source._next.clone();
+        _previous = source._previous.clone();
+        _cell = source._cell.clone();
+        _lastCell = source._lastCell.clone();
+    }
+
+    /**
+     * copia o indice em tempo proporcional ao numero de inimigos: os vetores
+     * do tamanho do tabuleiro (o primeiro inimigo e a pilula de cada casa)
+     * ficam compartilhados e cada copia so copia o seu antes da primeira
+     * escrita nele
+     * @return copia independente
+     */
+    public OccupancyIndex copy(){
+        return new OccupancyIndex(this);
+    }
+
+    /**
+     * volta este indice ao estado de outro do mesmo tabuleiro sem alocar: os
+     * vetores dos inimigos sao copiados para os deste indice e, no vetor de
+     * primeiros inimigos, so as casas ocupadas antes e depois sao
+     * reescritas. As pilulas ficam compartilhadas como em copy, e o vetor
+     * deste indice fica de reserva para a proxima mudanca
+     * @param source indice copiado, que nao muda
+     */
+    public void restore(OccupancyIndex source){
+        if (source == this){
+            return;
+        }
+        if (source._width != _width || source._firstAtCell.length != _firstAtCell.length){
+            throw new IllegalArgumentException("index of a different board");
+        }
+        if (_headsShared){
+            _firstAtCell = source._firstAtCell.clone();
+            _headsShared = false;
+        } else{
+            for (int slot = 0; slot < _cell.length; slot++){
+                if (_cell[slot] != NONE){
+                    _firstAtCell[_cell[slot]] = NONE;
+                }
+            }
+            for (int slot = 0; slot < source._cell.length; slot++){
+                int cell = source._cell[slot];
+                if (cell != NONE && source._previous[slot] == NONE){
+                    _firstAtCell[cell] = slot;
+                }
+            }
+        }
+        _next = copyInto(source._next, _next);
+        _previous = copyInto(source._previous, _previous);
+        _cell = copyInto(source._cell, _cell);
+        _lastCell = copyInto(source._lastCell, _lastCell);
+
+        if (_pillAtCell != source._pillAtCell){
+            if (!_pillsShared){
+                _sparePills = _pillAtCell;
+            }
+            _pillAtCell = source._pillAtCell;
+            _pillsShared = source._pillsShared = true;
+        }
+    }
+
+    private static int[] copyInto(int[] source, int[] target){
+        if (target == null || target.length != source.length){
+            return source.clone();
+        }
+        System.arraycopy(source, 0, target, 0, source.length);
+        return target;
+    }
+
+    /**
+     * indice da casa
+     * @param x linha
+     * @param y coluna
+     * @return indice em ordem de linha
+     */
+    public int cellIndex(int x, int y){
+        return x * _width + y;
+    }
+
+    /**
+     * coloca um inimigo no indice, sem casa anterior
+     * @param slot indice do inimigo
+     * @param cell casa onde ele esta
+     */
+    public void place(int slot, int cell){
+        ensureCapacity(slot + 1);
+        if (_cell[slot] != NONE){
+            unlink(slot);
+        }
+        link(slot, cell);
+        _lastCell[slot] = cell;
+    }
+
+    /**
+     * move um inimigo ja colocado, guardando a casa de onde ele saiu
+     * @param slot indice do inimigo
+     * @param cell nova casa
+     */
+    public void move(int slot, int cell){
+        int from = _cell[slot];
+        if (from == cell){
+            _lastCell[slot] = cell;
+            return;
+        }
+        unlink(slot);
+        link(slot, cell);
+        _lastCell[slot] = from;
+    }
+
+    /**
+     * tira todos os inimigos do indice, as pilulas continuam
+     */
+    public void clearEnemies(){
+        if (_headsShared){
+            _firstAtCell = new int[_firstAtCell.length];
+            _headsShared = false;
+        }
+        Arrays.fill(_firstAtCell, NONE);
+        Arrays.fill(_cell, NONE);
+    }
+
+    /**
+     * garante que o vetor de primeiros inimigos so pertence a este indice,
+     * antes de escrever nele
+     */
+    private void ownHeads(){
+        if (_headsShared){
+            _firstAtCell = _firstAtCell.clone();
+            _headsShared = false;
+        }
+    }
+
+    private void link(int slot, int cell){
+        ownHeads();
+        int first = _firstAtCell[cell];
+        _next[slot] = first;
+        _previous[slot] = NONE;
+        if (first != NONE){
+            _previous[first] = slot;
+        }
+        _firstAtCell[cell] = slot;
+        _cell[slot] = cell;
+    }
+
+    private void unlink(int slot){
+        int next = _next[slot];
+        int previous = _previous[slot];
+        if (previous != NONE){
+            _next[previous] = next;
+        } else{
+            ownHeads();
+            _firstAtCell[_cell[slot]] = next;
+        }
+        if (next != NONE){
+            _previous[next] = previous;
+        }
+        _cell[slot] = NONE;
+    }
+
+    private void ensureCapacity(int size){
+        if (size <= _next.length){
+            return;
+        }
+        int capacity = Math.max(size, _next.length * 2);
+        int oldCapacity = _next.length;
+        _next = Arrays.copyOf(_next, capacity);
+        _previous = Arrays.copyOf(_previous, capacity);
+        _cell = Arrays.copyOf(_cell, capacity);
+        _lastCell = Arrays.copyOf(_lastCell, capacity);
+        Arrays.fill(_cell, oldCapacity, capacity, NONE);
+    }
+
+    /**
+     * primeiro inimigo da casa
+     * @param cell indice da casa
+     * @return indice do inimigo ou NONE se a casa estiver livre
+     */
+    public int firstAt(int cell){
+        return _firstAtCell[cell];
+    }
+
+    /**
+     * proximo inimigo na mesma casa
+     * @param slot inimigo atual
+     * @return indice do proximo inimigo ou NONE
+     */
+    public int nextAt(int slot){
+        return _next[slot];
+    }
+
+    /**
+     * inimigo de maior indice na casa, o que aparece por cima no estagio
+     * @param cell indice da casa
+     * @return indice do inimigo ou NONE se a casa estiver livre
+     */
+    public int topAt(int cell){
+        int top = NONE;
+        for (int slot = _firstAtCell[cell]; slot != NONE; slot = _next[slot]){
+            top = Math.max(top, slot);
+        }
+        return top;
+    }
+
+    /**
+     * casa atual de um inimigo
+     * @param slot indice do inimigo
+     * @return indice da casa
+     */
+    public int cellOf(int slot){
+        return _cell[slot];
+    }
+
+    /**
+     * casa de onde o inimigo saiu no seu ultimo movimento
+     * @param slot indice do inimigo
+     * @return indice da casa, igual a atual se ele nao se moveu
+     */
+    public int lastCellOf(int slot){
+        return _lastCell[slot];
+    }
+
+    /**
+     * marca a pilula da casa
+     * @param cell indice da casa
+     * @param pill indice da pilula ou NONE para remover
+     */
+    public void setPill(int cell, int pill){
+        if (_pillsShared){
+            _pillAtCell = copyInto(_pillAtCell, _sparePills);
+            _sparePills = null;
+            _pillsShared = false;
+        }
+        _pillAtCell[cell] = pill;
+    }
+
+    /**
+     * pilula da casa
+     * @param cell indice da casa
+     * @return indice da pilula ou NONE
+     */
+    public int pillAt(int cell){
+        return _pillAtCell[cell];
+    }
+}
@@ -0,0 +1,442 @@
+package LogicEngine;
+
+/**
+ * busca de caminho compartilhada pelos fantasmas que perseguem o jogador em
+ * tabuleiros grandes demais para uma NavigationTable. Em vez de uma busca por
+ * fantasma, faz uma unica busca em largura reversa a partir da casa do
+ * jogador, que da a distancia de todas as casas ate ele; cada fantasma so
+ * precisa descer para o vizinho mais proximo. O campo de distancias e
+ * guardado e so e refeito quando o jogador muda de casa ou as paredes mudam,
+ * e a busca expande no maximo um orcamento de casas por chamada de update,
+ * continuando na chamada seguinte. Enquanto a busca nova nao termina, as
+ * casas ja alcancadas por ela usam o campo novo e as demais o ultimo campo
+ * completo. Se o alvo muda durante uma busca ela nao recomeca: o alvo novo
+ * fica guardado e e buscado em seguida, senao em tabuleiros grandes, onde
+ * uma busca leva muitos ticks, o jogador andaria antes de qualquer busca
+ * terminar. Um fork do jogo (copy) compartilha os campos e a fila com o
+ * original, e cada lado so copia um vetor quando vai escrever nele, ou seja
+ * quando comeca ou avanca uma busca. restore faz o mesmo sobre um servico
+ * existente, que guarda seus vetores para receber essas copias sem alocar
+ * @author matheus
+ */
+public class PathfindingService {
+    /**
+     * casas expandidas por chamada de update caso nenhum orcamento seja
+     * definido
+     */
+    public static final int DEFAULT_BUDGET = 8192;
+
+    private static final int NO_TARGET = -1;
+
+    /**
+     * campo de distancias ate uma casa alvo, uma casa so tem distancia valida
+     * se seu carimbo for a geracao atual do campo, o que evita limpar os
+     * vetores a cada busca. Os vetores podem ser compartilhados com o campo
+     * de um fork, e entao sao copiados antes da primeira escrita (para os
+     * vetores reserva, se houver)
+     */
+    private static final class DistanceField {
+        int[] _distance;
+        int[] _stamp;
+        boolean _shared = false;
+        int[] _spareDistance;
+        int[] _spareStamp;
+        int _generation = 0;
+        int _target = NO_TARGET;
+
+        DistanceField(int cells){
+            _distance = new int[cells];
+            _stamp = new int[cells];
+        }
+
+        private DistanceField(DistanceField source){
+            _distance = source._distance;
+            _stamp = source._stamp;
+            _generation = source._generation;
+            _target = source._target;
+        }
+
+        /**
+         * campo com o mesmo conteudo sobre os mesmos vetores, os dois campos
+         * passam a copiar os vetores antes de escrever
+         */
+        DistanceField share(){
+            DistanceField shared = new DistanceField(this);
+            shared._shared = _shared = true;
+            return shared;
+        }
+
+        /**
+         * volta ao conteudo de outro campo como share, guardando os vetores
+         * deste campo, se forem so dele, como reserva para a proxima escrita
+         */
+        void restore(DistanceField source){
+            if (!_shared){
+                _spareDistance = _distance;
+                _spareStamp = _stamp;
+            }
+            _distance = source._distance;
+            _stamp = source._stamp;
+            _shared = source._shared = true;
+            _generation = source._generation;
+            _target = source._target;
+        }
+
+        /**
+         * garante que os vetores so pertencem a este campo, antes de escrever
+         */
+        void own(){
+            if (_shared){
+                _distance = copyInto(_distance, _spareDistance);
+                _stamp = copyInto(_stamp, _spareStamp);
+                _spareDistance = null;
+                _spareStamp = null;
+                _shared = false;
+            }
+        }
+
+        boolean reached(int cell){
+            return _target != NO_TARGET && _stamp[cell] == _generation;
+        }
+
+        void restart(int target){
+            _generation++;
+            _target = target;
+        }
+
+        void clear(){
+            _target = NO_TARGET;
+        }
+    }
+
+    private final BoardLayers _layers;
+    private final int _height;
+    private final int _width;
+
+    private DistanceField _ready;
+    private DistanceField _building;
+    private boolean _searching = false;
+    private int _pending = NO_TARGET;
+
+    private int[] _queue;
+    private boolean _queueShared = false;
+    private int[] _spareQueue;
+    private int _head;
+    private int _tail;
+
+    private int _budget = DEFAULT_BUDGET;
+    private int _wallVersion;
+    private long _expandedNodes = 0;
+    private long _searches = 0;
+
+    /**
+     * Construtor
+     * @param layers camadas do tabuleiro em que os caminhos sao buscados
+     */
+    public PathfindingService(BoardLayers layers){
+        _layers = layers;
+        _height = layers.getHeight();
+        _width = layers.getWidth();
+        _ready = new DistanceField(_height * _width);
+        _building = new DistanceField(_height * _width);
+        _queue = new int[_height * _width];
+        _wallVersion = layers.getWallVersion();
+    }
+
+    private PathfindingService(PathfindingService source, BoardLayers layers){
+        _layers = layers;
+        _height = source._height;
+        _width = source._width;
+        _ready = source._ready.share();
+        _building = source._building.share();
+        _searching = source._searching;
+        _pending = source._pending;
+        _queue = source._queue;
+        _queueShared = source._queueShared = true;
+        _head = source._head;
+        _tail = source._tail;
+        _budget = source._budget;
+        _wallVersion = source._wallVersion;
+    }
+
+    /**
+     * copia a busca no ponto em que esta, para um fork do jogo, sem copiar os
+     * campos de distancia nem a fila (ver a descricao da classe)
+     * @param layers camadas do fork, com as mesmas paredes destas
+     * @return copia independente que segue buscando nas camadas dadas
+     */
+    PathfindingService copy(BoardLayers layers){
+        return new PathfindingService(this, layers);
+    }
+
+    /**
+     * volta este servico ao ponto de outro do mesmo tabuleiro, como copy mas
+     * sem alocar: os campos e a fila passam a ser compartilhados e os
+     * vetores deste servico ficam de reserva para quando ele voltar a
+     * escrever
+     * @param source servico copiado, que nao muda
+     */
+    void restore(PathfindingService source){
+        if (source == this){
+            return;
+        }
+        if (source._height != _height || source._width != _width){
+            throw new IllegalArgumentException("search of a different board");
+        }
+        _ready.restore(source._ready);
+        _building.restore(source._building);
+        _searching = source._searching;
+        _pending = source._pending;
+        if (!_queueShared){
+            _spareQueue = _queue;
+        }
+        _queue = source._queue;
+        _queueShared = source._queueShared = true;
+        _head = source._head;
+        _tail = source._tail;
+        _budget = source._budget;
+        _wallVersion = source._wallVersion;
+    }
+
+    /**
+     * copia um vetor compartilhado para o vetor reserva, ou para um novo se
+     * nao houver reserva
+     * @return copia do vetor que so pertence a quem chamou
+     */
+    private static int[] copyInto(int[] shared, int[] spare){
+        if (spare == null){
+            return shared.clone();
+        }
+        System.arraycopy(shared, 0, spare, 0, shared.length);
+        return spare;
+    }
+
+    /**
+     * segue o alvo e avanca a busca dentro do orcamento, deve ser chamado uma
+     * vez antes de consultar as direcoes de um tick
+     * @param targetX linha do alvo
+     * @param targetY coluna do alvo
+     */
+    public void update(int targetX, int targetY){
+        track(targetX, targetY);
+        advance();
+    }
+
+    /**
+     * define o alvo das buscas, comecando uma busca nova apenas se o alvo
+     * mudou de casa ou as paredes mudaram; com uma busca em andamento o alvo
+     * fica guardado para a busca seguinte
+     * @param targetX linha do alvo
+     * @param targetY coluna do alvo
+     */
+    public void track(int targetX, int targetY){
+        if (_layers.getWallVersion() != _wallVersion){
+            _wallVersion = _layers.getWallVersion();
+            _ready.clear();
+            _searching = false;
+            _pending = NO_TARGET;
+        }
+        if (!_layers.isWalkable(targetX, targetY)){
+            return;
+        }
+
+        int target = targetX * _width + targetY;
+        if (target == _ready._target){
+            _searching = false;
+            _pending = NO_TARGET;
+            return;
+        }
+        if (_searching){
+            _pending = target == _building._target ? NO_TARGET : target;
+            return;
+        }
+        begin(target);
+    }
+
+    /**
+     * comeca uma busca nova a partir do alvo
+     */
+    private void begin(int target){
+        ownSearch();
+        _building.restart(target);
+        _building._distance[target] = 0;
+        _building._stamp[target] = _building._generation;
+        _queue[0] = target;
+        _head = 0;
+        _tail = 1;
+        _searching = true;
+        _searches++;
+    }
+
+    /**
+     * expande ate o orcamento de casas da busca em andamento, quando ela
+     * termina o campo novo passa a ser o campo completo e o que sobrou do
+     * orcamento vai para a busca do alvo guardado, se houver
+     */
+    public void advance(){
+        int expanded = 0;
+        if (_searching){
+            ownSearch();
+        }
+        while (_searching && expanded < _budget){
+            expanded += expand(_budget - expanded);
+            if (_head == _tail){
+                DistanceField field = _building;
+                _building = _ready;
+                _ready = field;
+                _searching = false;
+                if (_pending != NO_TARGET){
+                    int pending = _pending;
+                    _pending = NO_TARGET;
+                    begin(pending);
+                }
+            }
+        }
+        _expandedNodes += expanded;
+    }
+
+    /**
+     * garante que o campo e a fila da busca em andamento so pertencem a este
+     * servico, copiando o que ainda for compartilhado com um fork
+     */
+    private void ownSearch(){
+        _building.own();
+        if (_queueShared){
+            _queue = copyInto(_queue, _spareQueue);
+            _spareQueue = null;
+            _queueShared = false;
+        }
+    }
+
+    /**
+     * expande casas da busca em andamento
+     * @param budget maximo de casas expandidas
+     * @return casas expandidas
+     */
+    private int expand(int budget){
+        DistanceField field = _building;
+        int expanded = 0;
+        while (_head < _tail && expanded < budget){
+            int cell = _queue[_head++];
+            int x = cell / _width;
+            int y = cell % _width;
+            int nextDistance = field._distance[cell] + 1;
+            for (int direction = 0; direction < Direction.COUNT; direction++){
+                int nx = x + Direction.DX[direction];
+                int ny = y + Direction.DY[direction];
+                if (_layers.isWalkable(nx, ny)){
+                    int next = nx * _width + ny;
+                    if (field._stamp[next] != field._generation){
+                        field._stamp[next] = field._generation;
+                        field._distance[next] = nextDistance;
+                        _queue[_tail++] = next;
+                    }
+                }
+            }
+            expanded++;
+        }
+        return expanded;
+    }
+
+    /**
+     * direcao do primeiro passo do menor caminho conhecido de uma casa ate o
+     * alvo
+     * @param fromX linha de origem
+     * @param fromY coluna de origem
+     * @return codigo de Direction, ou Direction.NONE caso a casa ja seja o
+     * alvo ou ainda nao tenha sido alcancada por nenhuma busca
+     */
+    public int nextDirection(int fromX, int fromY){
+        if (!_layers.isWalkable(fromX, fromY)){
+            return Direction.NONE;
+        }
+        int cell = fromX * _width + fromY;
+        DistanceField field = fieldFor(cell);
+        if (field == null || field._distance[cell] == 0){
+            return Direction.NONE;
+        }
+
+        int wanted = field._distance[cell] - 1;
+        for (int direction = 0; direction < Direction.COUNT; direction++){
+            int nx = fromX + Direction.DX[direction];
+            int ny = fromY + Direction.DY[direction];
+            if (_layers.isWalkable(nx, ny)){
+                int next = nx * _width + ny;
+                if (field.reached(next) && field._distance[next] == wanted){
+                    return direction;
+                }
+            }
+        }
+        return Direction.NONE;
+    }
+
+    /**
+     * distancia conhecida de uma casa ate o alvo
+     * @param fromX linha de origem
+     * @param fromY coluna de origem
+     * @return distancia em passos, ou -1 caso a casa ainda nao tenha sido
+     * alcancada
+     */
+    public int distance(int fromX, int fromY){
+        if (!_layers.isWalkable(fromX, fromY)){
+            return -1;
+        }
+        int cell = fromX * _width + fromY;
+        DistanceField field = fieldFor(cell);
+        return field == null ? -1 : field._distance[cell];
+    }
+
+    /**
+     * campo usado para uma casa: o da busca em andamento se ela ja alcancou a
+     * casa (distancia exata ao alvo novo), senao o ultimo campo completo
+     */
+    private DistanceField fieldFor(int cell){
+        if (_searching && _building.reached(cell)){
+            return _building;
+        }
+        if (_ready.reached(cell)){
+            return _ready;
+        }
+        return null;
+    }
+
+    /**
+     * indica se o campo de distancias corresponde ao alvo atual
+     * @return true se nenhuma busca estiver pela metade ou esperando
+     */
+    public boolean isComplete(){
+        return !_searching && _pending == NO_TARGET;
+    }
+
+    /**
+     * define quantas casas podem ser expandidas por chamada de update
+     * @param budget orcamento, no minimo 1
+     */
+    public void setBudget(int budget){
+        _budget = Math.max(1, budget);
+    }
+
+    /**
+     * getter para o orcamento de casas por chamada de update
+     * @return orcamento
+     */
+    public int getBudget(){
+        return _budget;
+    }
+
+    /**
+     * total de casas expandidas desde a criacao do servico
+     * @return numero de casas
+     */
+    public long getExpandedNodes(){
+        return _expandedNodes;
+    }
+
+    /**
+     * total de buscas comecadas, no maximo uma por mudanca de casa do alvo
+     * @return numero de buscas
+     */
+    public long getSearchCount(){
+        return _searches;
+    }
+}
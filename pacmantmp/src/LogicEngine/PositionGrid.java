@@ -0,0 +1,131 @@
+package LogicEngine;
+
+import MyUtils.Position;
+
+/**
+ * grade de posicoes canonicas do tabuleiro (uma unica instancia por casa),
+ * com os vizinhos validos de cada casa pre-calculados, para que a
+ * movimentacao nao precise criar novas posicoes a cada passo
+ * @author matheus
+ */
+public class PositionGrid {
+    private static final Position[] NO_NEIGHBOURS = new Position[0];
+
+    private final int _height;
+    private final int _width;
+
+    private final Position[] _positions;
+    private final Position[][] _validNeighbours;
+    private final Position[] _validPositions;
+
+    /**
+     * Construtor
+     * @param layers camadas do tabuleiro
+     */
+    public PositionGrid(BoardLayers layers){
+        _height = layers.getHeight();
+        _width = layers.getWidth();
+
+        _positions = new Position[_height * _width];
+        int validCount = 0;
+        for (int i = 0; i < _height; i++){
+            for (int j = 0; j < _width; j++){
+                _positions[i * _width + j] = new Position(i, j);
+                if (layers.isWalkable(i, j)){
+                    validCount++;
+                }
+            }
+        }
+
+        _validPositions = new Position[validCount];
+        _validNeighbours = new Position[_height * _width][];
+        Position[] buffer = new Position[Direction.COUNT];
+        int validIndex = 0;
+
+        for (int i = 0; i < _height; i++){
+            for (int j = 0; j < _width; j++){
+                if (layers.isWalkable(i, j)){
+                    _validPositions[validIndex++] = _positions[i * _width + j];
+                }
+
+                int found = 0;
+                for (int direction = 0; direction < Direction.COUNT; direction++){
+                    int nx = i + Direction.DX[direction];
+                    int ny = j + Direction.DY[direction];
+                    if (layers.isWalkable(nx, ny)){
+                        buffer[found++] = _positions[nx * _width + ny];
+                    }
+                }
+
+                if (found == 0){
+                    _validNeighbours[i * _width + j] = NO_NEIGHBOURS;
+                } else{
+                    Position[] neighbours = new Position[found];
+                    System.arraycopy(buffer, 0, neighbours, 0, found);
+                    _validNeighbours[i * _width + j] = neighbours;
+                }
+            }
+        }
+    }
+
+    /**
+     * instancia canonica da posicao
+     * @param x linha
+     * @param y coluna
+     * @return posicao compartilhada referente a casa
+     */
+    public Position at(int x, int y){
+        return _positions[x * _width + y];
+    }
+
+    /**
+     * posicao vizinha em uma direcao
+     * @param pos posicao de origem
+     * @param direction direcao do passo
+     * @return posicao canonica vizinha ou null caso saia do tabuleiro
+     */
+    public Position step(Position pos, int direction){
+        int nx = pos.getX() + Direction.DX[direction];
+        int ny = pos.getY() + Direction.DY[direction];
+        if (nx < 0 || ny < 0 || nx >= _height || ny >= _width){
+            return null;
+        }
+        return _positions[nx * _width + ny];
+    }
+
+    /**
+     * quantidade de vizinhos validos de uma posicao
+     * @param pos posicao consultada
+     * @return numero de vizinhos validos
+     */
+    public int validNeighbourCount(Position pos){
+        return _validNeighbours[pos.getX() * _width + pos.getY()].length;
+    }
+
+    /**
+     * vizinho valido de uma posicao
+     * @param pos posicao consultada
+     * @param index indice do vizinho, entre 0 e validNeighbourCount(pos)
+     * @return posicao canonica do vizinho
+     */
+    public Position validNeighbour(Position pos, int index){
+        return _validNeighbours[pos.getX() * _width + pos.getY()][index];
+    }
+
+    /**
+     * quantidade de posicoes validas do tabuleiro
+     * @return numero de posicoes validas
+     */
+    public int validPositionCount(){
+        return _validPositions.length;
+    }
+
+    /**
+     * posicao valida do tabuleiro
+     * @param index indice da posicao, entre 0 e validPositionCount()
+     * @return posicao canonica
+     */
+    public Position validPosition(int index){
+        return _validPositions[index];
+    }
+}
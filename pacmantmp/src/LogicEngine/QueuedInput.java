@@ -0,0 +1,116 @@
+package LogicEngine;
+
+/**
+ * fonte de comandos alimentada por uma InputQueue: a cada tick consome os
+ * eventos pendentes e mantem as direcoes seguradas em uma mascara de bits. A
+ * direcao pedida e a ultima apertada entre as que continuam seguradas; uma
+ * tecla solta antes que o jogador tenha andado nela continua sendo pedida
+ * ate que ele consiga andar nela (a curva antecipada do jogo original), ou ate que outra
+ * tecla seja apertada
+ * @author matheus
+ */
+public class QueuedInput implements InputSource {
+    private final InputQueue _queue;
+
+    private int _heldMask = 0;
+    private final long[] _pressOrder = new long[Direction.COUNT];
+    private long _pressCount = 0;
+
+    private int _movedMask = 0;
+    private int _tapped = Direction.NONE;
+
+    private long _lastEventMillis = -1;
+
+    /**
+     * Construtor
+     * @param queue fila de onde os eventos sao consumidos
+     */
+    public QueuedInput(InputQueue queue){
+        _queue = queue;
+    }
+
+    @Override
+    public int nextDirection(){
+        for (long event = _queue.poll(); event != InputQueue.EMPTY; event = _queue.poll()){
+            apply(event);
+        }
+
+        int direction = latestHeld();
+        if (_tapped != Direction.NONE
+                && (direction == Direction.NONE || _pressOrder[_tapped] > _pressOrder[direction])){
+            return _tapped;
+        }
+        _tapped = Direction.NONE;
+        return direction;
+    }
+
+    @Override
+    public void moved(int direction){
+        _movedMask |= 1 << direction;
+        if (direction == _tapped){
+            _tapped = Direction.NONE;
+        }
+    }
+
+    private void apply(long event){
+        int direction = InputQueue.direction(event);
+        int bit = 1 << direction;
+        if (InputQueue.pressed(event)){
+            if ((_heldMask & bit) == 0){
+                _heldMask |= bit;
+                _movedMask &= ~bit;
+                _pressOrder[direction] = ++_pressCount;
+            }
+        } else if ((_heldMask & bit) != 0){
+            _heldMask &= ~bit;
+            boolean alreadyMoved = (_movedMask & bit) != 0;
+            if (!alreadyMoved && (_tapped == Direction.NONE || _pressOrder[direction] > _pressOrder[_tapped])){
+                _tapped = direction;
+            }
+        }
+        _lastEventMillis = InputQueue.timeMillis(event);
+    }
+
+    /**
+     * ultima direcao apertada entre as que estao seguradas
+     */
+    private int latestHeld(){
+        int latest = Direction.NONE;
+        for (int direction = 0; direction < Direction.COUNT; direction++){
+            if ((_heldMask & (1 << direction)) != 0
+                    && (latest == Direction.NONE || _pressOrder[direction] > _pressOrder[latest])){
+                latest = direction;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * esquece as teclas seguradas e descarta os eventos pendentes, usado ao
+     * comecar um novo jogo
+     */
+    public void reset(){
+        while (_queue.poll() != InputQueue.EMPTY){
+            // descarta
+        }
+        _heldMask = 0;
+        _movedMask = 0;
+        _tapped = Direction.NONE;
+    }
+
+    /**
+     * mascara das direcoes seguradas, um bit por codigo de Direction
+     * @return mascara de bits
+     */
+    public int getHeldMask(){
+        return _heldMask;
+    }
+
+    /**
+     * momento do ultimo evento consumido
+     * @return momento em milissegundos, ou -1 se nenhum evento chegou
+     */
+    public long getLastEventMillis(){
+        return _lastEventMillis;
+    }
+}
@@ -0,0 +1,32 @@
+package LogicEngine;
+
+import java.util.Random;
+
+/**
+ * fonte de comandos que anda pelo tabuleiro aleatoriamente, mantendo a
+ * direcao por alguns ticks antes de trocar, usada em simulacoes sem jogador
+ * @author matheus
+ */
+public class RandomInput implements InputSource {
+    private static final int TURN_CHANCE = 8;
+
+    private final Random _random;
+    private int _direction;
+
+    /**
+     * Construtor
+     * @param seed semente do gerador de numeros aleatorios
+     */
+    public RandomInput(long seed){
+        _random = new Random(seed);
+        _direction = _random.nextInt(Direction.COUNT);
+    }
+
+    @Override
+    public int nextDirection(){
+        if (_random.nextInt(TURN_CHANCE) == 0){
+            _direction = _random.nextInt(Direction.COUNT);
+        }
+        return _direction;
+    }
+}
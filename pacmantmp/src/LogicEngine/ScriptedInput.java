@@ -0,0 +1,24 @@
+package LogicEngine;
+
+/**
+ * fonte de comandos que devolve a direcao definida por quem a controla,
+ * usada para dirigir sessoes simuladas passo a passo (buscas do Autopilot e
+ * ambientes do VectorEnvironment)
+ * @author matheus
+ */
+final class ScriptedInput implements InputSource {
+    private int _direction = Direction.NONE;
+
+    /**
+     * define a direcao pedida nos proximos ticks
+     * @param direction codigo de Direction, ou Direction.NONE
+     */
+    void setDirection(int direction){
+        _direction = direction;
+    }
+
+    @Override
+    public int nextDirection(){
+        return _direction;
+    }
+}
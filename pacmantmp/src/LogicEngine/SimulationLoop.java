@@ -0,0 +1,217 @@
+package LogicEngine;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * roda uma GameSession em uma thread propria, a um tick a cada
+ * GameSession.TICK_MILLIS, e publica ao fim de cada tick um GameSnapshot
+ * imutavel por meio de uma referencia atomica. Quem desenha so le o ultimo
+ * retrato publicado, sem travas e sem tocar na sessao, de forma que um quadro
+ * lento nao atrasa a simulacao e um tick lento nao derruba quadros. As casas
+ * sem entidades ficam em blocos e cada bloco e copiado apenas quando alguma
+ * de suas casas muda (copy-on-write), a partir das casas avisadas pela
+ * GameLogic, de forma que em tabuleiros grandes um tick so copia os poucos
+ * blocos que mudaram
+ * @author matheus
+ */
+public class SimulationLoop implements StageListener {
+    private static final long TICK_NANOS = GameSession.TICK_MILLIS * 1000000L;
+
+    /**
+     * atraso maximo recuperado, alem disso os ticks atrasados sao descartados
+     */
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
+    private final GameSession _session;
+    private final GameLogic _logic;
+    private final AtomicReference<GameSnapshot> _latest = new AtomicReference<>();
+
+    private volatile boolean _running = false;
+    private Thread _thread;
+
+    private char[][] _chunks;
+    private boolean[] _chunkCopied;
+    private int[] _copiedChunks;
+    private boolean[] _dirty;
+    private int[] _dirtyCells;
+    private int _dirtyCount;
+    private boolean _cellsReset = true;
+
+    /**
+     * Construtor, ja publica o retrato inicial da sessao
+     * @param session sessao simulada, que a partir daqui so deve ser usada
+     * pela thread da simulacao
+     */
+    public SimulationLoop(GameSession session){
+        _session = session;
+        _logic = session.getLogic();
+        _logic.addStageListener(this);
+        publish();
+    }
+
+    /**
+     * comeca a simular em uma nova thread
+     */
+    public synchronized void start(){
+        if (_thread != null){
+            return;
+        }
+        _running = true;
+        _thread = new Thread(this::run, "pacman-simulation");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    /**
+     * para a simulacao e espera a thread terminar, depois disso a sessao pode
+     * voltar a ser usada pela thread que chamou e a simulacao pode ser
+     * retomada com start
+     */
+    public synchronized void stop(){
+        _running = false;
+        if (_thread == null){
+            return;
+        }
+        LockSupport.unpark(_thread);
+        boolean interrupted = false;
+        while (_thread.isAlive()){
+            try {
+                _thread.join();
+            } catch (InterruptedException e){
+                interrupted = true;
+            }
+        }
+        _thread = null;
+        if (interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * ultimo retrato publicado
+     * @return retrato do ultimo tick simulado
+     */
+    public GameSnapshot latest(){
+        return _latest.get();
+    }
+
+    /**
+     * laco da thread da simulacao, ate ser parado ou o jogo terminar
+     */
+    private void run(){
+        long nextTick = System.nanoTime();
+        while (_running && !_session.isGameOver()){
+            long now = System.nanoTime();
+            if (now - nextTick > MAX_CATCH_UP_TICKS * TICK_NANOS){
+                nextTick = now;
+            }
+            if (now < nextTick){
+                LockSupport.parkNanos(nextTick - now);
+                continue;
+            }
+
+            _session.tick();
+            publish();
+            nextTick += TICK_NANOS;
+        }
+    }
+
+    /**
+     * retrata a sessao e publica o retrato
+     */
+    private void publish(){
+        GameMetrics metrics = _session.getMetrics();
+        long start = metrics.begin();
+
+        updateCells();
+        _latest.set(GameSnapshot.capture(_session, _latest.get(), _chunks, System.nanoTime()));
+
+        metrics.end(GameMetrics.SNAPSHOT, start);
+    }
+
+    /**
+     * atualiza as casas sem entidades, copiando a tabela de blocos e os
+     * blocos publicados apenas se alguma das casas avisadas realmente mudou
+     */
+    private void updateCells(){
+        int height = _logic.getHeight();
+        int width = _logic.getWidth();
+        int chunkColumns = GameSnapshot.chunkCount(width);
+
+        if (_cellsReset){
+            int chunkCount = GameSnapshot.chunkCount(height) * chunkColumns;
+            char[][] chunks = new char[chunkCount][];
+            for (int chunk = 0; chunk < chunkCount; chunk++){
+                chunks[chunk] = new char[GameSnapshot.CHUNK_SIZE * GameSnapshot.CHUNK_SIZE];
+            }
+            for (int i = 0; i < height; i++){
+                for (int j = 0; j < width; j++){
+                    chunks[chunkOf(i, j, chunkColumns)][GameSnapshot.chunkOffset(i, j)] = _logic.staticCellAt(i, j);
+                }
+            }
+            _chunks = chunks;
+            _chunkCopied = new boolean[chunkCount];
+            _copiedChunks = new int[chunkCount];
+            _dirty = new boolean[height * width];
+            _dirtyCells = new int[height * width];
+            _dirtyCount = 0;
+            _cellsReset = false;
+            return;
+        }
+
+        char[][] chunks = _chunks;
+        int copied = 0;
+        for (int k = 0; k < _dirtyCount; k++){
+            int cell = _dirtyCells[k];
+            int x = cell / width;
+            int y = cell % width;
+            _dirty[cell] = false;
+
+            char symbol = _logic.staticCellAt(x, y);
+            int chunk = chunkOf(x, y, chunkColumns);
+            int offset = GameSnapshot.chunkOffset(x, y);
+            if (symbol == chunks[chunk][offset]){
+                continue;
+            }
+            if (chunks == _chunks){
+                chunks = _chunks.clone();
+            }
+            if (!_chunkCopied[chunk]){
+                chunks[chunk] = chunks[chunk].clone();
+                _chunkCopied[chunk] = true;
+                _copiedChunks[copied++] = chunk;
+            }
+            chunks[chunk][offset] = symbol;
+        }
+        for (int k = 0; k < copied; k++){
+            _chunkCopied[_copiedChunks[k]] = false;
+        }
+        _dirtyCount = 0;
+        _chunks = chunks;
+    }
+
+    /**
+     * bloco que contem uma casa
+     */
+    private static int chunkOf(int x, int y, int chunkColumns){
+        return (x >> GameSnapshot.CHUNK_BITS) * chunkColumns + (y >> GameSnapshot.CHUNK_BITS);
+    }
+
+    @Override
+    public void cellChanged(int x, int y){
+        if (_cellsReset){
+            return;
+        }
+        int cell = x * _logic.getWidth() + y;
+        if (!_dirty[cell]){
+            _dirty[cell] = true;
+            _dirtyCells[_dirtyCount++] = cell;
+        }
+    }
+
+    @Override
+    public void stageReset(){
+        _cellsReset = true;
+    }
+}
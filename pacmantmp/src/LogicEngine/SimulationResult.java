@@ -0,0 +1,87 @@
+package LogicEngine;
+
+/**
+ * resultado de um jogo simulado sem interface grafica
+ * @author matheus
+ */
+public class SimulationResult {
+    private final long _seed;
+    private final int _score;
+    private final int _levelReached;
+    private final int _deaths;
+    private final long _ticks;
+
+    /**
+     * Construtor
+     * @param seed semente usada no jogo
+     * @param score score final
+     * @param levelReached level em que o jogo terminou
+     * @param deaths vezes que o jogador foi pego
+     * @param ticks ticks simulados
+     */
+    public SimulationResult(long seed, int score, int levelReached, int deaths, long ticks){
+        _seed = seed;
+        _score = score;
+        _levelReached = levelReached;
+        _deaths = deaths;
+        _ticks = ticks;
+    }
+
+    /**
+     * resultado do estado atual de uma sessao
+     * @param seed semente usada na sessao
+     * @param session sessao simulada
+     * @return resultado da sessao
+     */
+    public static SimulationResult of(long seed, GameSession session){
+        return new SimulationResult(seed, session.getLogic().getCurrentScore(),
+                                    session.getCurrentLevel(), session.getDeaths(),
+                                    session.getTickCount());
+    }
+
+    /**
+     * getter para a semente usada no jogo
+     * @return semente usada no jogo
+     */
+    public long getSeed(){
+        return _seed;
+    }
+
+    /**
+     * getter para o score final
+     * @return score final
+     */
+    public int getScore(){
+        return _score;
+    }
+
+    /**
+     * getter para o level em que o jogo terminou
+     * @return level em que o jogo terminou
+     */
+    public int getLevelReached(){
+        return _levelReached;
+    }
+
+    /**
+     * getter para as vezes que o jogador foi pego
+     * @return vezes que o jogador foi pego
+     */
+    public int getDeaths(){
+        return _deaths;
+    }
+
+    /**
+     * getter para os ticks simulados
+     * @return ticks simulados
+     */
+    public long getTicks(){
+        return _ticks;
+    }
+
+    @Override
+    public String toString(){
+        return "[seed " + _seed + ", score " + _score + ", level " + _levelReached +
+               ", deaths " + _deaths + ", ticks " + _ticks + "]";
+    }
+}
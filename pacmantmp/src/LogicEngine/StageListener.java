@@ -0,0 +1,21 @@
+package LogicEngine;
+
+/**
+ * observador das mudancas no estagio do jogo, permite que quem desenha ou
+ * analisa o tabuleiro reaja apenas ao que mudou sem copiar o estagio
+ * @author matheus
+ */
+public interface StageListener {
+
+    /**
+     * chamado quando o conteudo de uma casa mudou
+     * @param x linha da casa
+     * @param y coluna da casa
+     */
+    void cellChanged(int x, int y);
+
+    /**
+     * chamado quando o estagio inteiro foi substituido (troca de level)
+     */
+    void stageReset();
+}
@@ -0,0 +1,331 @@
+package LogicEngine;
+
+import SystemElements.Pacman;
+
+import java.util.List;
+import java.util.concurrent.Phaser;
+
+/**
+ * muitas sessoes de jogo avancadas juntas, para treinar agentes: step
+ * recebe a acao de cada ambiente, avanca todos um tick e escreve as
+ * recompensas, os fins de episodio e as observacoes em vetores alocados uma
+ * unica vez. A observacao de cada ambiente sao CHANNELS planos de
+ * altura x largura floats (paredes, pacdots, pilulas, fantasmas e jogador,
+ * 1 onde houver), em ordem ambiente, canal, casa; ao fim de cada tick so
+ * as casas avisadas pela GameLogic (StageListener) sao reescritas, sem
+ * copiar o estagio. Um ambiente cujo jogo acabou ou cujo level terminou e
+ * reiniciado na hora: a sessao volta por restore a uma copia do jogo novo,
+ * guardada quando o ambiente foi criado, recebe a semente do episodio
+ * (GameLogic.reseed) e a observacao passa a ser a do novo jogo. Os
+ * ambientes sao divididos em faixas entre threads fixas que se sincronizam
+ * por um Phaser a cada step; depois dos primeiros episodios um step nao
+ * aloca nada nas sessoes, nem quando reinicia um ambiente. A semente de
+ * cada episodio depende so da semente do vetor, do ambiente e do episodio,
+ * entao o resultado nao depende do numero de threads
+ * @author matheus
+ */
+public class VectorEnvironment {
+    /**
+     * quantidade de planos da observacao
+     */
+    public static final int CHANNELS = 5;
+
+    public static final int WALLS = 0;
+    public static final int PACDOTS = 1;
+    public static final int PILLS = 2;
+    public static final int GHOSTS = 3;
+    public static final int PLAYER = 4;
+
+    /**
+     * um ambiente: sessao atual, a copia do jogo novo para onde ela volta a
+     * cada episodio, a fonte de comandos que recebe as acoes e o ouvinte que
+     * junta as casas alteradas no tick, reescritas na sua parte do vetor de
+     * observacoes quando o tick termina
+     */
+    private final class Environment implements StageListener {
+        private final int _index;
+        private final ScriptedInput _input = new ScriptedInput();
+        private final int[] _changed = new int[_cells];
+        private final boolean[] _marked = new boolean[_cells];
+        private int _changedCount = 0;
+        private boolean _allChanged = false;
+        private GameSession _session;
+        private GameSession _newGame;
+        private GameLogic _logic;
+        private long _episode = 0;
+        private int _lastScore;
+
+        Environment(int index){
+            _index = index;
+        }
+
+        void reset(){
+            long seed = BatchSimulator.gameSeed(BatchSimulator.gameSeed(_seed, _index), (int) _episode++);
+            if (_session == null){
+                _session = GameSession.hordeGame(_levels, _ghosts, seed, _input);
+                _newGame = _session.fork(InputSource.NONE);
+                _logic = _session.getLogic();
+                _logic.addStageListener(this);
+            } else{
+                _session.restore(_newGame);
+                _logic.reseed(seed);
+            }
+            _lastScore = 0;
+            stageReset();
+            writeChanged();
+        }
+
+        void step(int action){
+            _input.setDirection(action);
+            _session.tick();
+            int score = _logic.getCurrentScore();
+            _rewards[_index] = score - _lastScore;
+            _lastScore = score;
+            boolean done = _session.isGameOver() || _logic.levelEnded();
+            _dones[_index] = done;
+            if (done){
+                reset();
+            } else{
+                writeChanged();
+            }
+        }
+
+        @Override
+        public void cellChanged(int x, int y){
+            int cell = x * _width + y;
+            if (!_marked[cell]){
+                _marked[cell] = true;
+                _changed[_changedCount++] = cell;
+            }
+        }
+
+        @Override
+        public void stageReset(){
+            _allChanged = true;
+        }
+
+        /**
+         * reescreve as casas alteradas desde a ultima escrita
+         */
+        private void writeChanged(){
+            if (_allChanged){
+                for (int cell = 0; cell < _cells; cell++){
+                    writeCell(_index, _logic, cell);
+                }
+            } else{
+                for (int i = 0; i < _changedCount; i++){
+                    writeCell(_index, _logic, _changed[i]);
+                }
+            }
+            for (int i = 0; i < _changedCount; i++){
+                _marked[_changed[i]] = false;
+            }
+            _changedCount = 0;
+            _allChanged = false;
+        }
+    }
+
+    private final List<Level> _levels;
+    private final int _ghosts;
+    private final long _seed;
+
+    private final int _height;
+    private final int _width;
+    private final int _cells;
+
+    private final Environment[] _environments;
+    private final float[] _observations;
+    private final float[] _rewards;
+    private final boolean[] _dones;
+
+    private final int _threads;
+    private final Phaser _phaser;
+    private int[] _actions;
+    private volatile Throwable _failure;
+
+    /**
+     * Construtor, cria e reinicia todos os ambientes
+     * @param levels levels jogados em cada episodio, todos do mesmo tamanho
+     * @param ghosts fantasmas de cada jogo
+     * @param environments quantidade de ambientes
+     * @param threads threads que avancam os ambientes, incluindo a que chama
+     * step
+     * @param seed semente do vetor
+     */
+    public VectorEnvironment(List<Level> levels, int ghosts, int environments, int threads, long seed){
+        if (levels.isEmpty() || environments < 1 || threads < 1){
+            throw new IllegalArgumentException("at least one level, environment and thread are required");
+        }
+        _height = levels.get(0).getHeight();
+        _width = levels.get(0).getWidth();
+        for (Level level : levels){
+            if (level.getHeight() != _height || level.getWidth() != _width){
+                throw new IllegalArgumentException("all levels must have the same size");
+            }
+        }
+        _levels = levels;
+        _ghosts = ghosts;
+        _seed = seed;
+        _cells = _height * _width;
+
+        _observations = new float[environments * CHANNELS * _cells];
+        _rewards = new float[environments];
+        _dones = new boolean[environments];
+        _environments = new Environment[environments];
+        for (int i = 0; i < environments; i++){
+            _environments[i] = new Environment(i);
+            _environments[i].reset();
+        }
+
+        _threads = Math.min(threads, environments);
+        _phaser = new Phaser(_threads);
+        for (int worker = 1; worker < _threads; worker++){
+            int id = worker;
+            Thread thread = new Thread(() -> work(id), "pacman-env-" + worker);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * avanca todos os ambientes um tick. Depois da chamada getRewards tem o
+     * score feito no tick, getDones indica os ambientes reiniciados e
+     * getObservations o estado atual de cada um
+     * @param actions codigo de Direction de cada ambiente, ou Direction.NONE
+     */
+    public void step(int[] actions){
+        if (actions.length != _environments.length){
+            throw new IllegalArgumentException("expected " + _environments.length + " actions");
+        }
+        _actions = actions;
+        if (_threads > 1){
+            _phaser.arriveAndAwaitAdvance();
+            try {
+                stepRange(0);
+            } finally {
+                _phaser.arriveAndAwaitAdvance();
+            }
+            Throwable failure = _failure;
+            if (failure != null){
+                _failure = null;
+                throw new IllegalStateException("environment step failed", failure);
+            }
+        } else{
+            stepRange(0);
+        }
+    }
+
+    /**
+     * laco das threads de trabalho: espera o inicio de um step, avanca sua
+     * faixa e avisa que terminou
+     */
+    private void work(int worker){
+        while (_phaser.arriveAndAwaitAdvance() >= 0){
+            try {
+                stepRange(worker);
+            } catch (Throwable e){
+                _failure = e;
+            }
+            _phaser.arriveAndAwaitAdvance();
+        }
+    }
+
+    private void stepRange(int worker){
+        int from = (int) ((long) _environments.length * worker / _threads);
+        int to = (int) ((long) _environments.length * (worker + 1) / _threads);
+        int[] actions = _actions;
+        for (int i = from; i < to; i++){
+            _environments[i].step(actions[i]);
+        }
+    }
+
+    /**
+     * reinicia todos os ambientes com jogos novos
+     */
+    public void reset(){
+        for (Environment environment : _environments){
+            environment.reset();
+        }
+    }
+
+    /**
+     * escreve os planos de uma casa de um ambiente
+     */
+    private void writeCell(int environment, GameLogic logic, int cell){
+        BoardLayers layers = logic.layers();
+        int x = cell / _width;
+        int y = cell % _width;
+        int base = environment * CHANNELS * _cells + cell;
+        Pacman player = logic.getPlayer();
+        _observations[base + WALLS * _cells] = layers.isWall(x, y) ? 1 : 0;
+        _observations[base + PACDOTS * _cells] = layers.hasPacdot(x, y) ? 1 : 0;
+        _observations[base + PILLS * _cells] = layers.hasPill(x, y) ? 1 : 0;
+        _observations[base + GHOSTS * _cells] = logic.occupancy().firstAt(cell) != OccupancyIndex.NONE ? 1 : 0;
+        _observations[base + PLAYER * _cells] = player.getPosX() == x && player.getPosY() == y ? 1 : 0;
+    }
+
+    /**
+     * observacoes de todos os ambientes, o mesmo vetor e reescrito a cada step
+     * @return vetor de ambientes x CHANNELS x altura x largura floats
+     */
+    public float[] getObservations(){
+        return _observations;
+    }
+
+    /**
+     * recompensas do ultimo step, os pontos feitos por cada ambiente
+     * @return vetor com uma recompensa por ambiente
+     */
+    public float[] getRewards(){
+        return _rewards;
+    }
+
+    /**
+     * fins de episodio do ultimo step
+     * @return true para os ambientes que perderam ou terminaram o level e
+     * foram reiniciados
+     */
+    public boolean[] getDones(){
+        return _dones;
+    }
+
+    /**
+     * sessao atual de um ambiente
+     * @param environment indice do ambiente
+     * @return sessao, a mesma em todos os episodios do ambiente
+     */
+    public GameSession getSession(int environment){
+        return _environments[environment]._session;
+    }
+
+    /**
+     * quantidade de ambientes
+     * @return numero de ambientes
+     */
+    public int getEnvironmentCount(){
+        return _environments.length;
+    }
+
+    /**
+     * getter para o numero de linhas das observacoes
+     * @return numero de linhas
+     */
+    public int getHeight(){
+        return _height;
+    }
+
+    /**
+     * getter para o numero de colunas das observacoes
+     * @return numero de colunas
+     */
+    public int getWidth(){
+        return _width;
+    }
+
+    /**
+     * encerra as threads de trabalho, o vetor nao pode mais ser usado
+     */
+    public void shutdown(){
+        _phaser.forceTermination();
+    }
+}